@@ -0,0 +1,146 @@
+package com.asia.tokyo.loadtest;
+
+import com.asia.tokyo.controller.model.CustomerBulkResult;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.CustomerService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seeds the customers, then runs a mix of get, search, add, update and delete at a fixed rate
+ * against the application started on a random port, and fails when the run is beyond the baseline.
+ * Off by default, run it with the loadtest profile:
+ * <pre>
+ * mvn -P loadtest verify
+ * mvn -P loadtest verify -Dloadtest.customers=1000000 -DargLine=-Xmx3g -Dloadtest.baseline=src/it/loadtest/baseline-1m.properties
+ * </pre>
+ * Other settings: loadtest.duration (seconds), loadtest.warmup (seconds), loadtest.max-in-flight and
+ * loadtest.mix (weights get,search,add,update,delete). The measures are written to
+ * target/loadtest/report.properties, under the keys of the baseline, with the latencies per
+ * operation in its header.
+ * <p>
+ * The baselines were measured on a 1 vCPU, 5 GB machine running both the application and the
+ * load, at 50 req/s: at 500 req/s that machine only reached 147 req/s, with a p50 of 6 s. A
+ * higher rate needs its own baseline, measured on the machine that runs it.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DisplayName("Load test the customer API")
+class CustomerLoadIT {
+
+    private static final double MB = 1024 * 1024;
+
+    private final int customers = Integer.getInteger("loadtest.customers", 100_000);
+    private final int rate = Integer.getInteger("loadtest.rate", 50);
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("loadtest.duration", 60));
+    private final Duration warmup = Duration.ofSeconds(Integer.getInteger("loadtest.warmup", 20));
+    private final int maxInFlight = Integer.getInteger("loadtest.max-in-flight", 1000);
+    private final String mix = System.getProperty("loadtest.mix", "70,10,10,5,5");
+    private final Path baseline = Paths.get(System.getProperty("loadtest.baseline", "src/it/loadtest/baseline.properties"));
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @LocalServerPort
+    private int port;
+
+    private CustomerWorkload workload;
+
+    @AfterEach
+    void tearDown() {
+        if (workload != null)
+            workload.shutdown();
+    }
+
+    @Test
+    @DisplayName("Running the mixed workload is staying within the baseline")
+    void running_mixed_workload_is_staying_within_baseline() throws Exception {
+        // GIVEN
+        CustomerBulkResult seeded = customerService.addCustomers(LoadData.newCustomers(customers));
+        assertEquals(customers, seeded.getCreated());
+        log.info("Seeded {} customers in {} ms", seeded.getCreated(), seeded.getElapsedMillis());
+        workload = new CustomerWorkload("http://localhost:" + port + "/api/customer", seededIds(), weights(), maxInFlight);
+        workload.run(rate, warmup);
+
+        // WHEN
+        long heapBefore = usedHeapAfterGc();
+        LoadReport report = workload.run(rate, duration);
+        report.setHeapGrowthMb((usedHeapAfterGc() - heapBefore) / MB);
+
+        // THEN
+        Path written = Paths.get("target", "loadtest", "report.properties");
+        report.write(written);
+        log.info("Load test measures, written to {}:{}", written, report.summary());
+        List<String> violations = report.violations(load(baseline));
+        assertTrue(violations.isEmpty(), "Beyond the baseline " + baseline + ": " + violations);
+    }
+
+    private List<UUID> seededIds() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            try (Stream<CustomerRepository.CustomerSeat> seats = customerRepository.streamAllCustomerSeats()) {
+                return seats.map(CustomerRepository.CustomerSeat::getId).collect(Collectors.toCollection(ArrayList::new));
+            }
+        });
+    }
+
+    private Map<CustomerWorkload.Operation, Integer> weights() {
+        String[] values = mix.split(",");
+        CustomerWorkload.Operation[] operations = CustomerWorkload.Operation.values();
+        if (values.length != operations.length)
+            throw new IllegalArgumentException("loadtest.mix needs one weight per operation: get,search,add,update,delete");
+        Map<CustomerWorkload.Operation, Integer> weights = new EnumMap<>(CustomerWorkload.Operation.class);
+        for (int i = 0; i < operations.length; i++)
+            weights.put(operations[i], Integer.parseInt(values[i].trim()));
+        return weights;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static Properties load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+}
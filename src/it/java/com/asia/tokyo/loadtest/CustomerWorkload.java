@@ -0,0 +1,192 @@
+package com.asia.tokyo.loadtest;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop mix of customer requests sent at a fixed rate, whatever the answers take.
+ * <p>
+ * Latencies are measured from the time a request was due, not from the time it left, so a
+ * stalled server shows in the percentiles instead of slowing the load down. Reads use the seeded
+ * customers; updates and deletions use the customers added by the run, with their version.
+ */
+class CustomerWorkload {
+
+    enum Operation {GET, SEARCH, ADD, UPDATE, DELETE}
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String baseUrl;
+    private final List<UUID> seeded;
+    private final Map<Operation, Integer> weights;
+    private final int maxInFlight;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(executor)
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Queue<CustomerDto> added = new ConcurrentLinkedQueue<>();
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    CustomerWorkload(String baseUrl, List<UUID> seeded, Map<Operation, Integer> weights, int maxInFlight) {
+        this.baseUrl = baseUrl;
+        this.seeded = seeded;
+        this.weights = weights;
+        this.maxInFlight = maxInFlight;
+        for (Operation operation : Operation.values())
+            recorders.put(operation, new Recorder(HIGHEST_TRACKABLE_NANOS, 3));
+    }
+
+    /**
+     * Sends {@code rate} requests per second for the duration, then waits for the last answers.
+     */
+    LoadReport run(int rate, Duration duration) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = duration.getSeconds() * rate;
+        resetRecorders();
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+            if (!inFlight.tryAcquire()) {
+                rejected.incrementAndGet();
+                continue;
+            }
+            Operation operation = pick();
+            send(operation).whenComplete((ok, e) -> {
+                recorders.get(operation).recordValue(Math.min(System.nanoTime() - due, HIGHEST_TRACKABLE_NANOS));
+                if (e != null || !ok)
+                    errors.incrementAndGet();
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        long elapsed = System.nanoTime() - start;
+
+        Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+        recorders.forEach((operation, recorder) -> {
+            Histogram histogram = recorder.getIntervalHistogram();
+            histograms.put(operation, histogram);
+            all.add(histogram);
+        });
+        return new LoadReport(rate, elapsed, all, histograms, errors.getAndSet(0), rejected.getAndSet(0));
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void resetRecorders() {
+        recorders.values().forEach(Recorder::reset);
+        errors.set(0);
+        rejected.set(0);
+    }
+
+    private Operation pick() {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int draw = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<Operation, Integer> weight : weights.entrySet()) {
+            draw -= weight.getValue();
+            if (draw < 0)
+                return weight.getKey();
+        }
+        return Operation.GET;
+    }
+
+    private CompletableFuture<Boolean> send(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case SEARCH:
+                return exchange(request("/all/" + LoadData.namePrefix(random.nextInt(100)) + "%25?limit=20").GET(), 200);
+            case ADD:
+                return add(LoadData.newCustomer(random.nextInt(1_000_000)));
+            case UPDATE: {
+                CustomerDto customer = added.poll();
+                if (customer == null)
+                    return add(LoadData.newCustomer(random.nextInt(1_000_000)));
+                String body = "{\"tableNumber\":\"" + (random.nextInt(99) + 1) + "\",\"version\":" + customer.getVersion() + "}";
+                return httpClient.sendAsync(request("/update/" + customer.getId()).method("PATCH", HttpRequest.BodyPublishers.ofString(body))
+                        .header("Content-Type", "application/json").build(), HttpResponse.BodyHandlers.ofByteArray())
+                        .thenApply(response -> {
+                            if (response.statusCode() != 200)
+                                return false;
+                            customer.setVersion(customer.getVersion() + 1);
+                            added.add(customer);
+                            return true;
+                        });
+            }
+            case DELETE: {
+                CustomerDto customer = added.poll();
+                if (customer == null)
+                    return add(LoadData.newCustomer(random.nextInt(1_000_000)));
+                return exchange(request("/delete/" + customer.getId()).DELETE(), 204);
+            }
+            default:
+                return exchange(request("/get/" + seeded.get(random.nextInt(seeded.size()))).GET(), 200);
+        }
+    }
+
+    private CompletableFuture<Boolean> add(CustomerDto customerDto) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(customerDto);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request("/add").POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .header("Content-Type", "application/json").build(), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() != 201)
+                        return false;
+                    try {
+                        added.add(objectMapper.readValue(response.body(), CustomerDto.class));
+                    } catch (IOException e) {
+                        return false;
+                    }
+                    return true;
+                });
+    }
+
+    private CompletableFuture<Boolean> exchange(HttpRequest.Builder request, int expectedStatus) {
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> response.statusCode() == expectedStatus);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+    }
+}
@@ -0,0 +1,45 @@
+package com.asia.tokyo.loadtest;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Synthetic customers: the names fall in 100 groups sharing a prefix, for the searches to match
+ * about one customer in a hundred.
+ */
+final class LoadData {
+
+    private LoadData() {
+    }
+
+    static String namePrefix(int group) {
+        return "LoadCustomer-" + group + "-";
+    }
+
+    static CustomerDto newCustomer(int i) {
+        return CustomerDto.builder()
+                .customerName(namePrefix(i % 100) + i)
+                .tableNumber(String.valueOf(i % 99 + 1))
+                .build();
+    }
+
+    static Iterator<CustomerDto> newCustomers(int count) {
+        return new Iterator<CustomerDto>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public CustomerDto next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return newCustomer(next++);
+            }
+        };
+    }
+}
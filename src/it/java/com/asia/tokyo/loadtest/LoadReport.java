@@ -0,0 +1,115 @@
+package com.asia.tokyo.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput, latency percentiles and heap growth of a run, and their comparison with a baseline.
+ */
+class LoadReport {
+
+    private final int rate;
+    private final long elapsedNanos;
+    private final Histogram all;
+    private final Map<CustomerWorkload.Operation, Histogram> histograms;
+    private final long errors;
+    private final long rejected;
+    private double heapGrowthMb;
+
+    LoadReport(int rate, long elapsedNanos, Histogram all, Map<CustomerWorkload.Operation, Histogram> histograms, long errors, long rejected) {
+        this.rate = rate;
+        this.elapsedNanos = elapsedNanos;
+        this.all = all;
+        this.histograms = histograms;
+        this.errors = errors;
+        this.rejected = rejected;
+    }
+
+    void setHeapGrowthMb(double heapGrowthMb) {
+        this.heapGrowthMb = heapGrowthMb;
+    }
+
+    double throughput() {
+        return all.getTotalCount() / (elapsedNanos / 1e9);
+    }
+
+    double errorRatio() {
+        long sent = all.getTotalCount() + rejected;
+        return sent == 0 ? 0 : (double) (errors + rejected) / sent;
+    }
+
+    static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    String summary() {
+        StringBuilder summary = new StringBuilder(String.format("%nTarget %d req/s, achieved %.1f req/s, %d errors, %d rejected, heap growth %.1f MB%n",
+                rate, throughput(), errors, rejected, heapGrowthMb));
+        summary.append(String.format("%-8s %10s %10s %10s %10s %10s%n", "", "count", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        histograms.forEach((operation, histogram) -> summary.append(line(operation.name(), histogram)));
+        summary.append(line("ALL", all));
+        return summary.toString();
+    }
+
+    /**
+     * Writes the measures under the keys of the baseline, to update it from a run.
+     */
+    void write(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("throughput.min-ratio", format(throughput() / rate));
+        properties.setProperty("latency.p50.max-millis", format(millis(all, 50)));
+        properties.setProperty("latency.p99.max-millis", format(millis(all, 99)));
+        properties.setProperty("latency.p999.max-millis", format(millis(all, 99.9)));
+        properties.setProperty("errors.max-ratio", format(errorRatio()));
+        properties.setProperty("heap.growth.max-mb", format(heapGrowthMb));
+        Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            properties.store(writer, "Measured by CustomerLoadIT" + summary());
+        }
+    }
+
+    /**
+     * @return the measures beyond their baseline limit, empty when the run is within the baseline
+     */
+    List<String> violations(Properties baseline) {
+        List<String> violations = new ArrayList<>();
+        atLeast(violations, baseline, "throughput.min-ratio", throughput() / rate);
+        atMost(violations, baseline, "latency.p50.max-millis", millis(all, 50));
+        atMost(violations, baseline, "latency.p99.max-millis", millis(all, 99));
+        atMost(violations, baseline, "latency.p999.max-millis", millis(all, 99.9));
+        atMost(violations, baseline, "errors.max-ratio", errorRatio());
+        atMost(violations, baseline, "heap.growth.max-mb", heapGrowthMb);
+        return violations;
+    }
+
+    private static void atLeast(List<String> violations, Properties baseline, String key, double measured) {
+        String limit = baseline.getProperty(key);
+        if (limit != null && measured < Double.parseDouble(limit))
+            violations.add(key + ": " + format(measured) + " < " + limit);
+    }
+
+    private static void atMost(List<String> violations, Properties baseline, String key, double measured) {
+        String limit = baseline.getProperty(key);
+        if (limit != null && measured > Double.parseDouble(limit))
+            violations.add(key + ": " + format(measured) + " > " + limit);
+    }
+
+    private static String line(String name, Histogram histogram) {
+        return String.format("%-8s %10d %10.2f %10.2f %10.2f %10.2f%n", name, histogram.getTotalCount(),
+                millis(histogram, 50), millis(histogram, 99), millis(histogram, 99.9), histogram.getMaxValue() / 1e6);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,62 @@
+package com.asia.tokyo.service.projection;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.repository.CustomerOutboxRepository;
+import com.asia.tokyo.service.CustomerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"tokyo.customer.projection.enabled=true", "tokyo.customer.projection.interval=1h"})
+@DisplayName("Test the projection of the customers into MongoDB")
+class CustomerProjectionIT {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerProjector customerProjector;
+
+    @Autowired
+    private CustomerOutboxRepository customerOutboxRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    @DisplayName("given customers created, updated and deleted"
+            + " when the outbox is projected"
+            + " then MongoDB holds the same customers as the database")
+    void stores_converge() {
+        // GIVEN
+        CustomerDto bond = customerService.addCustomer(CustomerDto.builder().customerName("James Bond").tableNumber("10").build());
+        CustomerDto smith = customerService.addCustomer(CustomerDto.builder().customerName("Anna Smith").tableNumber("5").build());
+        customerService.addCustomer(CustomerDto.builder().customerName("James Dean").tableNumber("2").build());
+        customerService.patchCustomer(bond.getId(), bond.getVersion(), CustomerDto.builder().tableNumber("8").build());
+        customerService.deleteCustomer(smith.getId());
+
+        // WHEN
+        customerProjector.project();
+
+        // THEN
+        assertThat(customerOutboxRepository.count()).isZero();
+        assertThat(sorted(mongoTemplate.findAll(CustomerDto.class)))
+                .usingElementComparatorIgnoringFields("createdDate", "lastModifiedDate")
+                .containsExactlyElementsOf(sorted(customerService.findAll()));
+    }
+
+    private static List<CustomerDto> sorted(Iterable<CustomerDto> customerDtos) {
+        return StreamSupport.stream(customerDtos.spliterator(), false)
+                .sorted(Comparator.comparing(CustomerDto::getId))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,66 @@
+package com.asia.tokyo.benchmark;
+
+import com.asia.tokyo.controller.mapper.CustomerMapper;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.domain.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CustomerMapperBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private CustomerMapper customerMapper;
+    private Customer customer;
+    private CustomerDto customerDto;
+    private List<Customer> customers;
+    private List<CustomerDto> customerDtos;
+
+    @Setup
+    public void setUp() {
+        customerMapper = Fixtures.customerMapper();
+        customer = Fixtures.customer(0);
+        customerDto = customerMapper.customerToCustomerDto(customer);
+        customers = Fixtures.customers(size);
+        customerDtos = customerMapper.customersToCustomerDtosList(customers);
+    }
+
+    @Benchmark
+    public CustomerDto entityToDto() {
+        return customerMapper.customerToCustomerDto(customer);
+    }
+
+    @Benchmark
+    public Customer dtoToEntity() {
+        return customerMapper.customerDtoToCustomer(customerDto);
+    }
+
+    @Benchmark
+    public List<CustomerDto> entitiesToDtos() {
+        return customerMapper.customersToCustomerDtosList(customers);
+    }
+
+    @Benchmark
+    public List<Customer> dtosToEntities() {
+        return customerMapper.customersDtoToCustomersList(customerDtos);
+    }
+}
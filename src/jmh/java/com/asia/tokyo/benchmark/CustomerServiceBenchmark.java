@@ -0,0 +1,114 @@
+package com.asia.tokyo.benchmark;
+
+import com.asia.tokyo.TokyoApplication;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerPagedList;
+import com.asia.tokyo.service.CustomerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The service with its real repository, on an in-memory H2 database holding {@link #ROWS} customers.
+ * Mongo is left out; the web layer is started on a random port because Swagger needs the servlet context.
+ * The findCustomerById cache is sized to 0, so that every lookup reads the database instead of measuring cache hits.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerServiceBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private List<UUID> ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(TokyoApplication.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .registerSingleton("testConfigurationExcludeFilter", new TestConfigurationExcludeFilter()))
+                .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration",
+                        "spring.jpa.show-sql=false",
+                        "tokyo.customer.cache.maximum-size=0",
+                        "logging.level.root=WARN")
+                .run();
+        customerService = context.getBean(CustomerService.class);
+
+        List<CustomerDto> customerDtos = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++)
+            customerDtos.add(Fixtures.newCustomerDto(i));
+        customerService.addCustomers(customerDtos.iterator());
+        ids = new ArrayList<>(ROWS);
+        customerService.exportAll(customerDto -> ids.add(customerDto.getId()));
+    }
+
+    /**
+     * The test classes are on the classpath of the benchmarks: their test configurations must not be scanned.
+     */
+    private static class TestConfigurationExcludeFilter extends TypeExcludeFilter {
+        @Override
+        public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+            return metadataReader.getAnnotationMetadata().hasAnnotation(TestConfiguration.class.getName());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public CustomerDto findCustomerById() {
+        return customerService.findCustomerById(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+    }
+
+    @Benchmark
+    public List<CustomerDto> findAllByCustomerNameLike() {
+        return customerService.findAllByCustomerNameLike("%customer 42%");
+    }
+
+    @Benchmark
+    public CustomerPagedList findPage() {
+        return customerService.findPage(null, 100, null);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void exportAll(Blackhole blackhole) {
+        customerService.exportAll(blackhole::consume);
+    }
+
+    @Benchmark
+    public CustomerDto addCustomer() {
+        return customerService.addCustomer(Fixtures.newCustomerDto(ThreadLocalRandom.current().nextInt(ROWS)));
+    }
+}
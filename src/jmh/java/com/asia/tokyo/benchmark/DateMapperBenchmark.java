@@ -0,0 +1,59 @@
+package com.asia.tokyo.benchmark;
+
+import com.asia.tokyo.controller.mapper.DateMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with the allocation profiler to see the bytes per conversion:
+ * {@code -Djmh.args="DateMapperBenchmark -prof gc"}, and read gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DateMapperBenchmark {
+
+    private DateMapper dateMapper;
+    private Timestamp timestamp;
+    private OffsetDateTime offsetDateTime;
+    private OffsetDateTime tokyoDateTime;
+
+    @Setup
+    public void setUp() {
+        dateMapper = new DateMapper();
+        timestamp = new Timestamp(System.currentTimeMillis());
+        offsetDateTime = dateMapper.asOffsetDateTime(timestamp);
+        tokyoDateTime = offsetDateTime.withOffsetSameInstant(ZoneOffset.ofHours(9));
+    }
+
+    @Benchmark
+    public OffsetDateTime asOffsetDateTime() {
+        return dateMapper.asOffsetDateTime(timestamp);
+    }
+
+    @Benchmark
+    public Timestamp asTimestamp() {
+        return dateMapper.asTimestamp(offsetDateTime);
+    }
+
+    @Benchmark
+    public Timestamp asTimestampFromOffset() {
+        return dateMapper.asTimestamp(tokyoDateTime);
+    }
+}
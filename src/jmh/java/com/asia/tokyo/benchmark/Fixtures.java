@@ -0,0 +1,54 @@
+package com.asia.tokyo.benchmark;
+
+import com.asia.tokyo.controller.mapper.CustomerMapper;
+import com.asia.tokyo.controller.mapper.CustomerMapperImpl;
+import com.asia.tokyo.controller.mapper.DateMapper;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data shared by the benchmarks. Values are built once per trial, outside the measured code.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static CustomerMapper customerMapper() {
+        CustomerMapperImpl customerMapper = new CustomerMapperImpl();
+        ReflectionTestUtils.setField(customerMapper, "dateMapper", new DateMapper());
+        return customerMapper;
+    }
+
+    static Customer customer(int i) {
+        Timestamp now = new Timestamp(System.currentTimeMillis() - i * 1000L);
+        return Customer.builder()
+                .id(TimeOrderedUUIDGenerator.next())
+                .version(1L)
+                .createdDate(now)
+                .lastModifiedDate(now)
+                .customerName("Benchmark customer " + i)
+                .tableNumber(String.valueOf(i % 99 + 1))
+                .build();
+    }
+
+    static List<Customer> customers(int size) {
+        List<Customer> customers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            customers.add(customer(i));
+        return customers;
+    }
+
+    static CustomerDto newCustomerDto(int i) {
+        return CustomerDto.builder()
+                .customerName("Benchmark customer " + i)
+                .tableNumber(String.valueOf(i % 99 + 1))
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.asia.tokyo.benchmark;
+
+import com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the varchar(36) random ids with the binary(16) time ordered ids: each iteration inserts {@link #rows}
+ * customers in a new table, and logs the size of the table and its indexes.
+ * Without url it runs on an H2 file database under target/, for MySQL:
+ * {@code -Djmh.args="IdLayoutBenchmark -p url=jdbc:mysql://localhost:3306/bench -p user=... -p password=..."}.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class IdLayoutBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String TABLE = "bench_id_layout";
+
+    @Param({"char", "binary"})
+    public String layout;
+
+    @Param("200000")
+    public int rows;
+
+    @Param("jdbc:h2:file:./target/id-layout-benchmark")
+    public String url;
+
+    @Param("sa")
+    public String user;
+
+    @Param("")
+    public String password;
+
+    private Connection connection;
+    private boolean mysql;
+
+    @Setup(Level.Trial)
+    public void connect() throws SQLException {
+        connection = DriverManager.getConnection(url, user, password);
+        mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+    }
+
+    @Setup(Level.Iteration)
+    public void createTable() throws SQLException {
+        String idType = "char".equals(layout) ? "VARCHAR(36)" : mysql ? "BINARY(16)" : "VARBINARY(16)";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id " + idType + " NOT NULL PRIMARY KEY, "
+                    + "created_date TIMESTAMP NOT NULL, customer_name VARCHAR(255))");
+            statement.execute("CREATE INDEX idx_" + TABLE + " ON " + TABLE + " (created_date, id)");
+        }
+    }
+
+    @Benchmark
+    public void insert() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + TABLE + " (id, created_date, customer_name) VALUES (?, CURRENT_TIMESTAMP, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setObject(1, "char".equals(layout) ? UUID.randomUUID().toString() : toBytes(TimeOrderedUUIDGenerator.next()));
+                insert.setString(2, "customer " + i);
+                insert.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void logSize() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (mysql) {
+                statement.execute("ANALYZE TABLE " + TABLE);
+                try (ResultSet result = statement.executeQuery("SELECT data_length, index_length FROM information_schema.tables "
+                        + "WHERE table_schema = DATABASE() AND table_name = '" + TABLE + "'")) {
+                    result.next();
+                    log.info("{} ids, {} rows: data {} KiB, secondary indexes {} KiB", layout, rows,
+                            result.getLong(1) / 1024, result.getLong(2) / 1024);
+                }
+                return;
+            }
+            try (ResultSet result = statement.executeQuery("CALL DISK_SPACE_USED('" + TABLE.toUpperCase() + "')")) {
+                result.next();
+                log.info("{} ids, {} rows: table and indexes {} KiB", layout, rows, result.getLong(1) / 1024);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+}
@@ -1,9 +1,12 @@
 package com.asia.tokyo;
 
+import com.asia.tokyo.config.CustomerProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(CustomerProperties.class)
 public class TokyoApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,201 @@
+package com.asia.tokyo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tokyo.customer")
+public class CustomerProperties {
+
+    private final Page page = new Page();
+
+    private final Export export = new Export();
+
+    private final Bulk bulk = new Bulk();
+
+    private final Search search = new Search();
+
+    private final Cache cache = new Cache();
+
+    private final Bulkheads bulkheads = new Bulkheads();
+
+    private final WriteBehind writeBehind = new WriteBehind();
+
+    private final Projection projection = new Projection();
+
+    private final Changes changes = new Changes();
+
+    private final JsonCache jsonCache = new JsonCache();
+
+    @Getter
+    @Setter
+    public static class Page {
+        /** Page size used when the client does not ask for one. */
+        private int defaultSize = 20;
+
+        /** Upper bound for the page size a client can ask for. */
+        private int maxSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Export {
+        /** Number of customers written between two flushes of the export response. */
+        private int flushSize = 500;
+
+        /** How long an export may stream, instead of the async request timeout of the other endpoints. */
+        private Duration timeout = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Bulk {
+        /**
+         * Number of customers written per transaction by the bulk creation, deleted per statement by the bulk deletion,
+         * and read per IN query by the multi-get.
+         */
+        private int chunkSize = 500;
+
+        /** Most UUIDs looked up by one multi-get. */
+        private int maxLookupIds = 1000;
+
+        /** How long a bulk creation may read its body and write, instead of the async request timeout of the other endpoints. */
+        private Duration timeout = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Search {
+        /** Whether name searches go through the in-memory trigram index when it can narrow them. */
+        private boolean indexEnabled = true;
+
+        /** Above this number of candidates the index gives up and the database scans the table. */
+        private int maxCandidates = 5000;
+
+        /** Number of candidate ids checked per IN (...) query. */
+        private int chunkSize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class Cache {
+        /** Number of customers kept by the findCustomerById cache. */
+        private long maximumSize = 10000;
+
+        /**
+         * Time after which a cached customer is read again from the database: also how long the writes
+         * of other instances, which do not invalidate this cache, may go unseen.
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(1);
+    }
+
+    @Getter
+    @Setter
+    public static class Bulkheads {
+        /** Lookups by id. */
+        private final Bulkhead pointRead = new Bulkhead(8, 200, Duration.ofSeconds(2));
+
+        /** Listings and name searches. */
+        private final Bulkhead search = new Bulkhead(4, 50, Duration.ofSeconds(10));
+
+        /** Creations, updates and deletions. */
+        private final Bulkhead write = new Bulkhead(4, 100, Duration.ofSeconds(5));
+    }
+
+    @Getter
+    @Setter
+    public static class Bulkhead {
+        /** Threads of the executor. */
+        private int threads;
+
+        /** Requests waiting for a thread; above it they are refused with a 503. */
+        private int queueCapacity;
+
+        /** Time after which a request still waiting, or a read still running, is answered with a 503. */
+        private Duration timeout;
+
+        Bulkhead(int threads, int queueCapacity, Duration timeout) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.timeout = timeout;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class WriteBehind {
+        /** Whether single creations are queued and committed by groups instead of one transaction each. */
+        private boolean enabled = false;
+
+        /** Creations waiting for the committer; above it they are refused with a 503. */
+        private int queueCapacity = 2000;
+
+        /** Creations committed together at most. */
+        private int maxBatchSize = 100;
+
+        /** Time the committer waits for more creations once it has one. */
+        private Duration linger = Duration.ofMillis(5);
+
+        /**
+         * Time after which a creation still queued is withdrawn and answered with a 503; also how long
+         * the shutdown waits for the group being committed.
+         */
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter
+    public static class Projection {
+        /** Whether the writes are recorded in the outbox and projected into the MongoDB read model. */
+        private boolean enabled = false;
+
+        /** Whether the listings and name searches are served by the read model instead of the database. Needs enabled. */
+        private boolean serveReads = false;
+
+        /** Outbox entries applied per round trip to MongoDB. */
+        private int batchSize = 500;
+
+        /** Pause between two passes over the outbox. */
+        private Duration interval = Duration.ofMillis(200);
+    }
+
+    @Getter
+    @Setter
+    public static class Changes {
+        /** Latest changes kept to resume a stream from its Last-Event-ID. */
+        private int replaySize = 1000;
+
+        /** Changes waiting to be sent to one subscriber; above it the subscriber is disconnected. */
+        private int subscriberQueue = 256;
+
+        /** Threads sending the changes to the subscribers. */
+        private int threads = 2;
+
+        /** Time a send may stay blocked on a client before the subscriber is disconnected. */
+        private Duration sendTimeout = Duration.ofSeconds(10);
+
+        /** Period of the comment sent to an idle subscriber. */
+        private Duration heartbeat = Duration.ofSeconds(15);
+
+        /** Time after which a stream is closed, for the client to reconnect. */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class JsonCache {
+        /** Keeps the JSON of the customers answered, to write it again while their version is unchanged. */
+        private boolean enabled = true;
+
+        /** Bytes of JSON kept, entries counted with their overhead. */
+        private DataSize maximumSize = DataSize.ofMegabytes(64);
+
+        /** Keeps the JSON in direct buffers, outside the heap (bounded by -XX:MaxDirectMemorySize). */
+        private boolean offHeap = false;
+    }
+}
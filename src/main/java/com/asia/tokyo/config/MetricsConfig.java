@@ -0,0 +1,27 @@
+package com.asia.tokyo.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /** Upper bound of the message categories counted by tokyo.customer.errors. */
+    static final int MAX_ERROR_CATEGORIES = 50;
+
+    /**
+     * Makes the {@code @Timed} methods of the services measured.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterFilter errorCategoriesFilter() {
+        return MeterFilter.maximumAllowableTags("tokyo.customer.errors", "category", MAX_ERROR_CATEGORIES, MeterFilter.deny());
+    }
+}
@@ -0,0 +1,45 @@
+package com.asia.tokyo.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+import java.util.Arrays;
+
+import static com.asia.tokyo.controller.CustomerController.APPLICATION_NDJSON_VALUE;
+
+@Profile("reactive")
+@Configuration
+public class ReactiveConfig {
+
+    /**
+     * Tomcat is on the classpath for the servlet API and Spring Boot would pick it for WebFlux too.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Jackson only streams application/stream+json out of the box: NDJSON would be collected into an array.
+     * Runs after the Jackson customizer of Spring Boot, which would replace this encoder.
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper) {
+        MediaType ndjson = MediaType.parseMediaType(APPLICATION_NDJSON_VALUE);
+        return configurer -> {
+            Jackson2JsonEncoder encoder = new Jackson2JsonEncoder(objectMapper,
+                    MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), ndjson);
+            encoder.setStreamingMediaTypes(Arrays.asList(ndjson, MediaType.APPLICATION_STREAM_JSON));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.asia.tokyo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from the JVM start to the application ready, logged and published as tokyo.startup.ready.
+ * <p>
+ * With tokyo.startup.exit-when-ready=true the application stops once ready: the Dockerfile uses
+ * it for the training run listing the classes of the class-data-sharing archive.
+ */
+@Slf4j
+@Component
+public class StartupReport {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean exitWhenReady;
+    private volatile long readyMillis;
+
+    public StartupReport(MeterRegistry meterRegistry, @Value("${tokyo.startup.exit-when-ready:false}") boolean exitWhenReady) {
+        this.meterRegistry = meterRegistry;
+        this.exitWhenReady = exitWhenReady;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onReady(ApplicationReadyEvent event) {
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder("tokyo.startup.ready", this, TimeUnit.MILLISECONDS, report -> report.readyMillis)
+                .description("Time from the JVM start to the application ready")
+                .register(meterRegistry);
+        log.info("Ready in {} ms since the JVM started, profiles {}", readyMillis,
+                Arrays.toString(event.getApplicationContext().getEnvironment().getActiveProfiles()));
+        if (exitWhenReady)
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
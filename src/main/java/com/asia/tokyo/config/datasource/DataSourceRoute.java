@@ -0,0 +1,60 @@
+package com.asia.tokyo.config.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins the reads of the current thread to the primary, so that a client reads its own writes
+ * while the replicas catch up. Set per request by the {@link ReadYourWritesFilter}, and carried
+ * to the executors by {@link #propagate(Runnable)}.
+ */
+public final class DataSourceRoute {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private DataSourceRoute() {
+    }
+
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return PINNED_TO_PRIMARY.get() != null;
+    }
+
+    public static void clear() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    /**
+     * Runs the task with its reads on the primary, for the views that must not miss a write.
+     */
+    public static void runOnPrimary(Runnable task) {
+        callOnPrimary(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Calls the task with its reads on the primary and answers its result. Inside a transaction it
+     * only applies when the task is the first to use the connection, which is routed lazily.
+     */
+    public static <T> T callOnPrimary(Supplier<T> task) {
+        boolean pinned = isPinnedToPrimary();
+        pinToPrimary();
+        try {
+            return task.get();
+        } finally {
+            if (!pinned)
+                clear();
+        }
+    }
+
+    /**
+     * Runs the task with the pin of the calling thread, as a {@code TaskDecorator}.
+     */
+    public static Runnable propagate(Runnable task) {
+        return isPinnedToPrimary() ? () -> runOnPrimary(task) : task;
+    }
+}
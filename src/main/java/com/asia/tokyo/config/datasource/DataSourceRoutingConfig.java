@@ -0,0 +1,62 @@
+package com.asia.tokyo.config.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the spring.datasource pool by a primary and replica pools (tokyo.datasource.*):
+ * read-only transactions go to the replicas, the others to the primary.
+ * <p>
+ * Metrics: hikaricp.connections.* tagged pool=primary|replica-N, and tokyo.datasource.route.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tokyo.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    /**
+     * Closes the pools with the context.
+     */
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceRoutingProperties properties, MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool(properties.getPrimary(), ReplicaRoutingDataSource.PRIMARY, meterRegistry);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++)
+            replicas.add(pool(properties.getReplicas().get(i), "replica-" + i, meterRegistry));
+        return new ReplicaRoutingDataSource(primary, replicas, meterRegistry);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(DataSourceRoutingProperties properties) {
+        return new ReadYourWritesFilter(properties.getRouting().getPinAfterWrite());
+    }
+
+    /**
+     * Keeps the pin to the primary when a request hands its work to an executor.
+     */
+    @Bean
+    public TaskDecorator dataSourceRouteTaskDecorator() {
+        return DataSourceRoute::propagate;
+    }
+
+    /**
+     * The pool starts with its first connection.
+     */
+    static HikariDataSource pool(HikariConfig config, String name, MeterRegistry meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        config.copyStateTo(pool);
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
@@ -0,0 +1,55 @@
+package com.asia.tokyo.config.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tokyo.datasource")
+public class DataSourceRoutingProperties {
+
+    private final Routing routing = new Routing();
+
+    /** Pool of the primary, which takes the writes: jdbc-url, username, password, maximum-pool-size... */
+    private final HikariConfig primary = new HikariConfig();
+
+    /** One pool per replica, which take the read-only transactions in turn. */
+    private final List<HikariConfig> replicas = new ArrayList<>();
+
+    private final Sharding sharding = new Sharding();
+
+    /** One pool per shard: a customer lives on the shard picked by the hash of its id, so changing their number moves the customers. */
+    private final List<HikariConfig> shards = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Routing {
+        /** Whether the primary and replica pools replace the spring.datasource one. */
+        private boolean enabled = false;
+
+        /** How long the reads of a client stay on the primary after it wrote; 0 never pins them. */
+        private Duration pinAfterWrite = Duration.ofSeconds(2);
+    }
+
+    @Getter
+    @Setter
+    public static class Sharding {
+        /** Whether the customers are spread over the tokyo.datasource.shards pools; not combined with the routing. */
+        private boolean enabled = false;
+
+        /** How long each shard may take to answer its part of a fan-out, or to hand over the next row of a stream. */
+        private Duration timeout = Duration.ofSeconds(5);
+
+        /** Threads querying the shards in parallel; a stream holds one per shard until it is closed. */
+        private int threads = 16;
+
+        /** Rows buffered between the shards and the consumer of a stream. */
+        private int streamBuffer = 1000;
+    }
+}
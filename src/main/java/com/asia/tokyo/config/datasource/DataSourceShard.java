@@ -0,0 +1,113 @@
+package com.asia.tokyo.config.datasource;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the connections of the current thread come from. A transaction stays on the shard of
+ * its first customer up to its end: its connection may only be taken at the commit, once the calls
+ * that picked the shard have returned.
+ */
+public final class DataSourceShard {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private static final Object TRANSACTION_KEY = DataSourceShard.class;
+
+    private DataSourceShard() {
+    }
+
+    /**
+     * @return the shard of the current transaction, else of the current thread, else null
+     */
+    public static Integer current() {
+        Integer bound = (Integer) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+        return bound != null ? bound : CURRENT.get();
+    }
+
+    public static boolean isEntered() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @return the shard entered before, to {@link #restore(Integer)} once done
+     */
+    public static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    public static void restore(Integer previous) {
+        if (previous == null)
+            CURRENT.remove();
+        else
+            CURRENT.set(previous);
+    }
+
+    public static void runOnShard(Integer shard, Runnable task) {
+        callOnShard(shard, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Calls the task on the shard, or as it is when the shard is null: the customer repository calls
+     * of the task stay on that shard, as do the transactions it starts.
+     */
+    public static <T> T callOnShard(Integer shard, Supplier<T> task) {
+        if (shard == null)
+            return task.get();
+        Integer previous = enter(shard);
+        try {
+            return task.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Keeps the current transaction, if any, on the shard.
+     *
+     * @throws IllegalStateException when the transaction is already on another shard
+     */
+    public static void bindToTransaction(int shard) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        Integer bound = (Integer) TransactionSynchronizationManager.getResource(TRANSACTION_KEY);
+        if (bound == null) {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, shard);
+            TransactionSynchronizationManager.registerSynchronization(new Binding(shard));
+        } else if (bound != shard) {
+            throw new IllegalStateException("A transaction cannot span shards: it is on shard " + bound + ", not " + shard + ".");
+        }
+    }
+
+    private static class Binding implements TransactionSynchronization {
+
+        private final int shard;
+
+        Binding(int shard) {
+            this.shard = shard;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TRANSACTION_KEY, shard);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_KEY);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.asia.tokyo.config.datasource;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the spring.datasource pool by one pool per shard (tokyo.datasource.shards); the
+ * CustomerShardRouter sends each customer repository call to its shard, or to all of them.
+ * Every shard needs the schema: Hibernate creates it on the first one at most, so a shard
+ * without the tables fails the startup instead of its first write.
+ * <p>
+ * Metrics: hikaricp.connections.* tagged pool=shard-N, and tokyo.datasource.route.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tokyo.datasource.sharding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceShardingConfig {
+
+    /**
+     * Closes the pools with the context.
+     */
+    @Bean
+    public ShardRoutingDataSource dataSource(DataSourceRoutingProperties properties, MeterRegistry meterRegistry) {
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (int i = 0; i < properties.getShards().size(); i++)
+            shards.add(DataSourceRoutingConfig.pool(properties.getShards().get(i), "shard-" + i, meterRegistry));
+        return new ShardRoutingDataSource(shards, meterRegistry);
+    }
+
+    /**
+     * Once Hibernate is done, which may be in the background.
+     */
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> shardSchemaCheck(ShardRoutingDataSource dataSource, CustomerProperties customerProperties) {
+        List<String> tables = customerProperties.getProjection().isEnabled() ? List.of("customer", "customer_outbox") : List.of("customer");
+        return event -> dataSource.checkTables(tables);
+    }
+
+    /**
+     * The shard of a new customer is picked from the id given before the save.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer keepAssignedIds() {
+        return hibernateProperties -> hibernateProperties.put(TimeOrderedUUIDGenerator.KEEP_ASSIGNED_SETTING, "true");
+    }
+}
@@ -0,0 +1,75 @@
+package com.asia.tokyo.config.datasource;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pins the reads of a client to the primary for a while after it sent a write. Any method but
+ * GET, HEAD and OPTIONS counts as a write: the cookie is set before the request is handled, since
+ * an asynchronous answer is committed after this filter returns. The cookie holds the time, in
+ * epoch milliseconds, until which the reads of the client stay on the primary.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "tokyo-primary-until";
+
+    private static final List<String> READ_METHODS = Arrays.asList("GET", "HEAD", "OPTIONS");
+
+    private final Duration pinAfterWrite;
+
+    public ReadYourWritesFilter(Duration pinAfterWrite) {
+        this.pinAfterWrite = pinAfterWrite;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return pinAfterWrite.isZero();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean pinned = pinnedUntil(request) > now;
+        if (!READ_METHODS.contains(request.getMethod())) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + pinAfterWrite.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (pinAfterWrite.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+            pinned = true;
+        }
+        if (pinned)
+            DataSourceRoute.pinToPrimary();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DataSourceRoute.clear();
+        }
+    }
+
+    private static long pinnedUntil(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null)
+            return 0;
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,70 @@
+package com.asia.tokyo.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out the connections of read-only transactions from the replicas, in turn, and every other
+ * one from the primary. The transaction is only known to be read-only once it has begun: the
+ * connection is a lazy proxy, which asks a pool for the real one at the first statement.
+ * <p>
+ * Metric: tokyo.datasource.route tagged route=primary|replica-N, the connections handed out per pool.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    public static final String PRIMARY = "primary";
+
+    private final Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+    private final List<String> replicas = new ArrayList<>();
+    private final Map<String, Counter> routed = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas, MeterRegistry meterRegistry) {
+        pools.put(PRIMARY, primary);
+        replicas.forEach(replica -> {
+            pools.put(replica.getPoolName(), replica);
+            this.replicas.add(replica.getPoolName());
+        });
+        pools.keySet().forEach(route -> routed.put(route, Counter.builder("tokyo.datasource.route").tag("route", route)
+                .description("Connections handed out per pool").register(meterRegistry)));
+        Router router = new Router();
+        router.setTargetDataSources(new HashMap<>(pools));
+        router.setDefaultTargetDataSource(primary);
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    private String route() {
+        String route = PRIMARY;
+        if (!replicas.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !DataSourceRoute.isPinnedToPrimary())
+            route = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+        routed.get(route).increment();
+        return route;
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+
+    private class Router extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return route();
+        }
+    }
+}
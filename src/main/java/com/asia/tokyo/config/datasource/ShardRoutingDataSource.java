@@ -0,0 +1,86 @@
+package com.asia.tokyo.config.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out the connections from the pool of the {@link DataSourceShard#current() current shard},
+ * or from the first shard outside of any, as for the Hibernate startup and the other tables. The
+ * connection is a lazy proxy: the shard is looked up at the first statement, once it is known.
+ * <p>
+ * Metric: tokyo.datasource.route tagged route=shard-N, the connections handed out per pool.
+ */
+public class ShardRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final List<HikariDataSource> shards;
+    private final List<Counter> routed = new ArrayList<>();
+
+    public ShardRoutingDataSource(List<HikariDataSource> shards, MeterRegistry meterRegistry) {
+        if (shards.isEmpty())
+            throw new IllegalStateException("tokyo.datasource.shards must list at least one shard.");
+        this.shards = new ArrayList<>(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+            routed.add(Counter.builder("tokyo.datasource.route").tag("route", shards.get(i).getPoolName())
+                    .description("Connections handed out per pool").register(meterRegistry));
+        }
+        Router router = new Router();
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(shards.get(0));
+        router.setLenientFallback(false);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /**
+     * @throws IllegalStateException naming the tables missing, or unreadable, on each shard
+     */
+    public void checkTables(Collection<String> tables) {
+        List<String> missing = new ArrayList<>();
+        for (HikariDataSource shard : shards) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+            for (String table : tables) {
+                try {
+                    jdbcTemplate.queryForList("SELECT 1 FROM " + table + " WHERE 1 = 0");
+                } catch (DataAccessException e) {
+                    missing.add(table + " on " + shard.getPoolName());
+                }
+            }
+        }
+        if (!missing.isEmpty())
+            throw new IllegalStateException("Every shard needs the schema, Hibernate creates it on the first one at most: "
+                    + "cannot read " + missing + ".");
+    }
+
+    @Override
+    public void close() {
+        shards.forEach(HikariDataSource::close);
+    }
+
+    private class Router extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            Integer shard = DataSourceShard.current();
+            int route = shard == null ? 0 : shard;
+            routed.get(route).increment();
+            return route;
+        }
+    }
+}
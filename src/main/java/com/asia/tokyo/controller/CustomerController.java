@@ -1,72 +1,417 @@
 package com.asia.tokyo.controller;
 
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.controller.bulkhead.CustomerBulkheads;
+import com.asia.tokyo.controller.changes.CustomerChangeFeed;
+import com.asia.tokyo.controller.model.CustomerBulkDeleteResult;
+import com.asia.tokyo.controller.model.CustomerBulkResult;
 import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerLookupResult;
+import com.asia.tokyo.controller.model.CustomerPagedList;
+import com.asia.tokyo.controller.model.CustomerSnapshot;
+import com.asia.tokyo.controller.model.CustomerTableOccupancy;
+import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.exception.CustomerVersionConflictException;
 import com.asia.tokyo.service.CustomerService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import io.swagger.annotations.Api;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static com.asia.tokyo.controller.bulkhead.CustomerBulkheads.Kind.POINT_READ;
+import static com.asia.tokyo.controller.bulkhead.CustomerBulkheads.Kind.SEARCH;
+import static com.asia.tokyo.controller.bulkhead.CustomerBulkheads.Kind.WRITE;
 
 @Api("Customer controller")
+@Profile("!reactive")
 @Validated
 @RestController
-@RequestMapping(value = "/api/customer", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(value = "/api/customer", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, CustomerController.APPLICATION_SMILE_VALUE})
 public class CustomerController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /** CBOR and Smile are answered when asked by Accept; JSON stays the default. */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private static final List<MediaType> PRODUCED = Arrays.asList(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+            MediaType.valueOf(APPLICATION_SMILE_VALUE));
+
     private CustomerService customerService;
+    private ObjectMapper objectMapper;
+    private CustomerProperties customerProperties;
+    private CustomerBulkheads customerBulkheads;
+    private CustomerChangeFeed customerChangeFeed;
+    private MappingJackson2CborHttpMessageConverter cborHttpMessageConverter;
+    private MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter;
+    private ContentNegotiationManager contentNegotiationManager;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService, ObjectMapper objectMapper, CustomerProperties customerProperties,
+                              CustomerBulkheads customerBulkheads, CustomerChangeFeed customerChangeFeed,
+                              MappingJackson2CborHttpMessageConverter cborHttpMessageConverter,
+                              MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter,
+                              ContentNegotiationManager contentNegotiationManager) {
         this.customerService = customerService;
+        this.objectMapper = objectMapper;
+        this.cborHttpMessageConverter = cborHttpMessageConverter;
+        this.smileHttpMessageConverter = smileHttpMessageConverter;
+        this.customerProperties = customerProperties;
+        this.customerBulkheads = customerBulkheads;
+        this.customerChangeFeed = customerChangeFeed;
+        this.contentNegotiationManager = contentNegotiationManager;
     }
 
+    // With write-behind the request waits for the group commit without holding a thread of the write bulkhead.
     @PostMapping("/add")
-    public ResponseEntity<CustomerDto> addCustomer(@Valid @RequestBody CustomerDto customerDto) {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        return new ResponseEntity<>(customerService.addCustomer(customerDto), httpHeaders, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<CustomerDto>> addCustomer(@Valid @RequestBody CustomerDto customerDto) {
+        if (customerProperties.getWriteBehind().isEnabled())
+            return customerService.addCustomerAsync(customerDto)
+                    .thenApply(created -> new ResponseEntity<>(created, HttpStatus.CREATED));
+        return customerBulkheads.supply(WRITE,
+                () -> new ResponseEntity<>(customerService.addCustomer(customerDto), HttpStatus.CREATED));
+    }
+
+    // A thread of the write bulkhead reads the customers from the request body while they are created.
+    @PostMapping(value = "/add/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public DeferredResult<ResponseEntity<CustomerBulkResult>> addCustomers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                           InputStream body) {
+        ObjectMapper mapper = objectMapperFor(contentType);
+        return bulk(() -> {
+            try (JsonParser parser = mapper.getFactory().createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY)
+                    throw new CustomerException("The customers must be sent as an array.");
+                // The elements are read one at a time, from the next token on.
+                parser.clearCurrentToken();
+                MappingIterator<CustomerDto> customerDtos = mapper.readerFor(CustomerDto.class).readValues(parser);
+                return customerService.addCustomers(new BodyIterator(customerDtos, "index", 0));
+            }
+        });
+    }
+
+    // A thread of the write bulkhead reads the customers from the request body while they are created.
+    @PostMapping(value = "/add/bulk", consumes = APPLICATION_NDJSON_VALUE)
+    public DeferredResult<ResponseEntity<CustomerBulkResult>> addCustomers(InputStream body) {
+        return bulk(() -> {
+            try (MappingIterator<CustomerDto> customerDtos = objectMapper.readerFor(CustomerDto.class).readValues(body)) {
+                return customerService.addCustomers(new BodyIterator(customerDtos, "line", 1));
+            }
+        });
+    }
+
+    /**
+     * A bulk creation may last longer than the async request timeout of the other endpoints:
+     * it gets its own, tokyo.customer.bulk.timeout.
+     */
+    private DeferredResult<ResponseEntity<CustomerBulkResult>> bulk(BodyReader<CustomerBulkResult> creation) {
+        DeferredResult<ResponseEntity<CustomerBulkResult>> result = new DeferredResult<>(customerProperties.getBulk().getTimeout().toMillis());
+        customerBulkheads.supply(WRITE, () -> {
+            try {
+                return creation.read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((created, e) -> {
+            if (e == null)
+                result.setResult(new ResponseEntity<>(created, HttpStatus.OK));
+            else
+                result.setErrorResult(e instanceof UncheckedIOException ? e.getCause() : e);
+        });
+        return result;
     }
 
     @GetMapping("/get/{uuid}")
-    public ResponseEntity<CustomerDto> findCustomerById(@PathVariable UUID uuid) {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        return new ResponseEntity<>(customerService.findCustomerById(uuid), httpHeaders, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<CustomerDto>> findCustomerById(@PathVariable UUID uuid,
+                                                                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                           NativeWebRequest request) {
+        MediaType representation = representation(request);
+        return customerBulkheads.supply(POINT_READ, () -> {
+            CustomerDto customerDto = customerService.findCustomerById(uuid);
+            return conditional(ifNoneMatch, CustomerETags.of(customerDto, representation), customerDto);
+        });
     }
 
+    /**
+     * Many customers in one request, for callers resolving a set of UUIDs. Unknown UUIDs are
+     * listed as missing instead of failing the request.
+     */
+    @PostMapping(value = "/get/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public CompletableFuture<ResponseEntity<CustomerLookupResult>> findCustomersByIds(@RequestBody List<UUID> uuids) {
+        return customerBulkheads.supply(SEARCH,
+                () -> new ResponseEntity<>(customerService.findCustomersByIds(uuids), HttpStatus.OK));
+    }
+
+    /**
+     * With If-Match, the ETag of the customer as last read: the update is refused with a 412
+     * if someone else changed the customer since.
+     */
     @PutMapping("/update")
-    public ResponseEntity<CustomerDto> updateAdmin(@Valid @RequestBody CustomerDto customerDto) {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        return new ResponseEntity<>(customerService.updateCustomer(customerDto), httpHeaders, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<CustomerDto>> updateAdmin(@Valid @RequestBody CustomerDto customerDto,
+                                                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                      NativeWebRequest request) {
+        MediaType representation = representation(request);
+        return customerBulkheads.supply(WRITE, () -> {
+            CustomerDto updated;
+            if (ifMatch == null) {
+                updated = customerService.updateCustomer(customerDto);
+            } else {
+                CustomerETags.IdVersion expected = CustomerETags.parseIfMatch(ifMatch);
+                updated = customerService.updateCustomer(expected.id, expected.version, customerDto);
+            }
+            return ResponseEntity.ok().eTag(CustomerETags.of(updated, representation)).varyBy(HttpHeaders.ACCEPT).body(updated);
+        });
     }
 
+    /**
+     * Changes only the fields given in the body. The expected version comes from If-Match,
+     * or else from the version of the body. Answers the whole customer at its new version.
+     */
+    @PatchMapping("/update/{uuid}")
+    public CompletableFuture<ResponseEntity<CustomerDto>> patchCustomer(@PathVariable UUID uuid,
+                                                                        @RequestBody CustomerDto changes,
+                                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                                        NativeWebRequest request) {
+        MediaType representation = representation(request);
+        return customerBulkheads.supply(WRITE, () -> {
+            long expectedVersion;
+            if (ifMatch != null) {
+                CustomerETags.IdVersion expected = CustomerETags.parseIfMatch(ifMatch);
+                if (!expected.id.equals(uuid))
+                    throw new CustomerVersionConflictException("This If-Match header is for another customer.");
+                expectedVersion = expected.version;
+            } else if (changes.getVersion() != null) {
+                expectedVersion = changes.getVersion();
+            } else {
+                throw new CustomerException("The version to change must be given by If-Match or in the body.");
+            }
+            CustomerDto patched = customerService.patchCustomer(uuid, expectedVersion, changes);
+            return ResponseEntity.ok().eTag(CustomerETags.of(patched, representation)).varyBy(HttpHeaders.ACCEPT).body(patched);
+        });
+    }
+
+    /**
+     * With If-Match, the customer is only deleted if it is still at the version of that ETag.
+     */
     @DeleteMapping("/delete/{uuid}")
-    public ResponseEntity<Void> deleteCustomer(@PathVariable UUID uuid) {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        customerService.deleteCustomer(uuid);
-        return ResponseEntity.noContent().headers(httpHeaders).build();
+    public CompletableFuture<ResponseEntity<Void>> deleteCustomer(@PathVariable UUID uuid,
+                                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return customerBulkheads.supply(WRITE, () -> {
+            if (ifMatch == null) {
+                customerService.deleteCustomer(uuid);
+            } else {
+                CustomerETags.IdVersion expected = CustomerETags.parseIfMatch(ifMatch);
+                if (!expected.id.equals(uuid))
+                    throw new CustomerVersionConflictException("This If-Match header is for another customer.");
+                customerService.deleteCustomer(uuid, expected.version);
+            }
+            return ResponseEntity.noContent().build();
+        });
+    }
+
+    @PostMapping(value = "/delete/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public CompletableFuture<ResponseEntity<CustomerBulkDeleteResult>> deleteCustomers(@RequestBody List<UUID> uuids) {
+        return customerBulkheads.supply(WRITE,
+                () -> new ResponseEntity<>(customerService.deleteCustomers(uuids), HttpStatus.OK));
+    }
+
+    /**
+     * Customers seated per table, kept up to date by the writes instead of grouping every customer.
+     */
+    @GetMapping("/tables")
+    public CompletableFuture<ResponseEntity<List<CustomerTableOccupancy>>> findTableOccupancy() {
+        return customerBulkheads.supply(POINT_READ,
+                () -> new ResponseEntity<>(customerService.findTableOccupancy(), HttpStatus.OK));
+    }
+
+    @PostMapping("/tables/rebuild")
+    public ResponseEntity<Void> rebuildTableOccupancy() {
+        customerService.rebuildTableOccupancy();
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Committed creations, updates and deletions as server-sent events, instead of polling /all.
+     * A client reconnecting with Last-Event-ID gets the changes it missed, or a reset event.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return customerChangeFeed.subscribe(lastEventId);
     }
 
     @GetMapping("/all/{customerName}")
-    public ResponseEntity<List<CustomerDto>> findAllByCustomerNameLike(@PathVariable String customerName) {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        return new ResponseEntity<>(customerService.findAllByCustomerNameLike(customerName), httpHeaders, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<List<CustomerDto>>> findAllByCustomerNameLike(@PathVariable String customerName,
+                                                                                          @RequestParam(required = false) Integer limit,
+                                                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return customerBulkheads.supply(SEARCH, () -> {
+            List<CustomerDto> customerDtos = customerService.findAllByCustomerNameLike(customerName, limit);
+            return conditional(ifNoneMatch, CustomerETags.ofList(customerDtos), customerDtos);
+        });
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Set<CustomerDto>> findAll() {
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
-        return new ResponseEntity<>(customerService.findAll(), httpHeaders, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<Set<CustomerDto>>> findAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return customerBulkheads.supply(SEARCH, () -> {
+            // The read model lags behind the database: its listing is tagged from what it holds.
+            if (customerProperties.getProjection().isServeReads()) {
+                Set<CustomerDto> customerDtos = customerService.findAll();
+                return conditional(ifNoneMatch, CustomerETags.ofList(customerDtos), customerDtos);
+            }
+            // The tag and the customers come from the same transaction, so from the same replica.
+            CustomerSnapshot snapshot = customerService.findAllWithVersion(
+                    version -> CustomerETags.matches(ifNoneMatch, CustomerETags.ofVersion(version)));
+            return conditional(ifNoneMatch, CustomerETags.ofVersion(snapshot.getVersion()), snapshot.getCustomers());
+        });
+    }
+
+    @GetMapping("/page")
+    public CompletableFuture<ResponseEntity<CustomerPagedList>> findPage(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(required = false) Integer size,
+                                                                         @RequestParam(required = false) String sort,
+                                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return customerBulkheads.supply(SEARCH, () -> {
+            CustomerPagedList page = customerService.findPage(cursor, size, sort);
+            return conditional(ifNoneMatch, CustomerETags.ofList(page.getContent()), page);
+        });
+    }
+
+    /**
+     * A complete export may stream for longer than the async request timeout of the other endpoints:
+     * it gets its own, tokyo.customer.export.timeout.
+     */
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportAll(HttpServletResponse response) {
+        return new WebAsyncTask<>(customerProperties.getExport().getTimeout().toMillis(), () -> {
+            response.setContentType(APPLICATION_NDJSON_VALUE);
+            int flushSize = customerProperties.getExport().getFlushSize();
+            ObjectWriter writer = objectMapper.writerFor(CustomerDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+                long[] written = {0};
+                customerService.exportAll(customerDto -> {
+                    try {
+                        writer.writeValue(generator, customerDto);
+                        if (++written[0] % flushSize == 0)
+                            generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                // Ends the last line; an empty export stays empty.
+                if (written[0] > 0)
+                    generator.writeRaw('\n');
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 304 without body when the client already holds this tag: the customers are not serialized.
+     * Clients are asked to revalidate on every use.
+     */
+    private static <T> ResponseEntity<T> conditional(String ifNoneMatch, String eTag, T body) {
+        if (CustomerETags.matches(ifNoneMatch, eTag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).build();
+        return ResponseEntity.ok().eTag(eTag).cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT).body(body);
+    }
+
+    /**
+     * The format the message converters will answer in, the same choice as theirs: the most
+     * specific accepted type, JSON first among equals.
+     */
+    private MediaType representation(NativeWebRequest request) {
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(contentNegotiationManager.resolveMediaTypes(request));
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType acceptedType : accepted)
+            for (MediaType produced : PRODUCED)
+                if (acceptedType.isCompatibleWith(produced))
+                    return produced;
+        return MediaType.APPLICATION_JSON;
+    }
+
+    private ObjectMapper objectMapperFor(MediaType contentType) {
+        if (MediaType.APPLICATION_CBOR.isCompatibleWith(contentType))
+            return cborHttpMessageConverter.getObjectMapper();
+        if (MediaType.valueOf(APPLICATION_SMILE_VALUE).isCompatibleWith(contentType))
+            return smileHttpMessageConverter.getObjectMapper();
+        return objectMapper;
+    }
+
+    private interface BodyReader<T> {
+        T read() throws IOException;
+    }
+
+    /**
+     * Reads the request body one customer at a time, numbered by line or array index. A customer that
+     * cannot be read stops the import with a bad request; the customers before it are already created.
+     */
+    private static class BodyIterator implements Iterator<CustomerDto> {
+
+        private final MappingIterator<CustomerDto> delegate;
+        private final String position;
+        private long next;
+
+        BodyIterator(MappingIterator<CustomerDto> delegate, String position, long first) {
+            this.delegate = delegate;
+            this.position = position;
+            this.next = first;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return delegate.hasNextValue();
+            } catch (IOException e) {
+                throw new CustomerException("The customer at " + position + " " + next + " is not valid.");
+            }
+        }
+
+        @Override
+        public CustomerDto next() {
+            try {
+                return delegate.nextValue();
+            } catch (IOException e) {
+                throw new CustomerException("The customer at " + position + " " + next + " is not valid.");
+            } finally {
+                next++;
+            }
+        }
     }
 }
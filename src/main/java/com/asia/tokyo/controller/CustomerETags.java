@@ -0,0 +1,100 @@
+package com.asia.tokyo.controller;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.exception.CustomerException;
+import org.springframework.http.MediaType;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Entity tags of the customer resources. A customer is tagged strongly by its id and version,
+ * plus its format when not JSON: the CBOR and Smile bodies are other bytes, so they get other tags.
+ * A listing is tagged weakly by a fingerprint of what it holds, shared by the formats.
+ */
+final class CustomerETags {
+
+    private static final String WEAK_PREFIX = "W/";
+    private static final MediaType APPLICATION_SMILE = MediaType.valueOf(CustomerController.APPLICATION_SMILE_VALUE);
+
+    private CustomerETags() {
+    }
+
+    static String of(CustomerDto customerDto, MediaType representation) {
+        return "\"" + customerDto.getId() + "-" + customerDto.getVersion() + format(representation) + "\"";
+    }
+
+    private static String format(MediaType representation) {
+        if (MediaType.APPLICATION_CBOR.isCompatibleWith(representation))
+            return "+cbor";
+        if (APPLICATION_SMILE.isCompatibleWith(representation))
+            return "+smile";
+        return "";
+    }
+
+    static String ofVersion(String version) {
+        return WEAK_PREFIX + "\"" + version + "\"";
+    }
+
+    static String ofList(Collection<CustomerDto> customerDtos) {
+        long hash = customerDtos.size();
+        for (CustomerDto customerDto : customerDtos) {
+            UUID id = customerDto.getId();
+            hash = 31 * hash + (id == null ? 0 : id.getMostSignificantBits());
+            hash = 31 * hash + (id == null ? 0 : id.getLeastSignificantBits());
+            hash = 31 * hash + (customerDto.getVersion() == null ? -1 : customerDto.getVersion());
+        }
+        return ofVersion(customerDtos.size() + "-" + Long.toHexString(hash));
+    }
+
+    /**
+     * Weak comparison, as If-None-Match asks for.
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null)
+            return false;
+        String opaque = opaque(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || opaque(candidate).equals(opaque))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads the id and version of the strong tag sent in If-Match, whatever its format.
+     */
+    static IdVersion parseIfMatch(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.startsWith(WEAK_PREFIX) || tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\""))
+            throw new CustomerException("This If-Match header is not valid.");
+        String opaque = tag.substring(1, tag.length() - 1);
+        int format = opaque.indexOf('+');
+        if (format >= 0)
+            opaque = opaque.substring(0, format);
+        int separator = opaque.lastIndexOf('-');
+        if (separator < 0)
+            throw new CustomerException("This If-Match header is not valid.");
+        try {
+            return new IdVersion(UUID.fromString(opaque.substring(0, separator)),
+                    Long.parseLong(opaque.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new CustomerException("This If-Match header is not valid.");
+        }
+    }
+
+    private static String opaque(String eTag) {
+        return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+    }
+
+    static final class IdVersion {
+        final UUID id;
+        final long version;
+
+        IdVersion(UUID id, long version) {
+            this.id = id;
+            this.version = version;
+        }
+    }
+}
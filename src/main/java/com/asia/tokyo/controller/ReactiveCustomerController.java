@@ -0,0 +1,71 @@
+package com.asia.tokyo.controller;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.service.ReactiveCustomerService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.UUID;
+
+import static com.asia.tokyo.controller.CustomerController.APPLICATION_NDJSON_VALUE;
+
+/**
+ * The customer API of {@link CustomerController} on WebFlux, started by the reactive profile.
+ * Listings asked as NDJSON are streamed as they come from Mongo, at the pace of the client.
+ */
+@Profile("reactive")
+@Validated
+@RestController
+@RequestMapping(value = "/api/customer", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReactiveCustomerController {
+
+    private ReactiveCustomerService reactiveCustomerService;
+
+    public ReactiveCustomerController(ReactiveCustomerService reactiveCustomerService) {
+        this.reactiveCustomerService = reactiveCustomerService;
+    }
+
+    @PostMapping("/add")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<CustomerDto> addCustomer(@Valid @RequestBody CustomerDto customerDto) {
+        return reactiveCustomerService.addCustomer(customerDto);
+    }
+
+    @GetMapping("/get/{uuid}")
+    public Mono<CustomerDto> findCustomerById(@PathVariable UUID uuid) {
+        return reactiveCustomerService.findCustomerById(uuid);
+    }
+
+    @PutMapping("/update")
+    public Mono<CustomerDto> updateAdmin(@Valid @RequestBody CustomerDto customerDto) {
+        return reactiveCustomerService.updateCustomer(customerDto);
+    }
+
+    @DeleteMapping("/delete/{uuid}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteCustomer(@PathVariable UUID uuid) {
+        return reactiveCustomerService.deleteCustomer(uuid);
+    }
+
+    @GetMapping(value = "/all/{customerName}", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public Flux<CustomerDto> findAllByCustomerNameLike(@PathVariable String customerName,
+                                                       @RequestParam(required = false) Integer limit) {
+        return reactiveCustomerService.findAllByCustomerNameLike(customerName, limit);
+    }
+
+    @GetMapping(value = "/all", produces = {MediaType.APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE})
+    public Flux<CustomerDto> findAll() {
+        return reactiveCustomerService.findAll();
+    }
+
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerDto> exportAll() {
+        return reactiveCustomerService.findAll();
+    }
+}
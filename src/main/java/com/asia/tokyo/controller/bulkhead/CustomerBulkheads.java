@@ -0,0 +1,152 @@
+package com.asia.tokyo.controller.bulkhead;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * One bounded executor per class of request, so that slow searches cannot take the threads of
+ * the lookups by id or of the writes. A full queue or an elapsed timeout ends the request with
+ * a {@link CustomerUnavailableException}; the Tomcat thread is released as soon as the work is queued.
+ * <p>
+ * A write only times out while it is still queued: once started it may commit, so it is waited for
+ * rather than answered with a "please retry" that could repeat it.
+ * <p>
+ * Metrics: executor.* tagged name=customer.point-read|search|write, and
+ * tokyo.customer.bulkhead.rejected / tokyo.customer.bulkhead.timeout tagged bulkhead.
+ * The executors are not beans on purpose: an Executor bean would replace the task executor of Spring Boot.
+ * The work is wrapped by the {@link TaskDecorator} bean when there is one, as in that executor.
+ */
+@Profile("!reactive")
+@Component
+public class CustomerBulkheads {
+
+    public enum Kind {
+        POINT_READ, SEARCH, WRITE;
+
+        String tag() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final Map<Kind, Bulkhead> bulkheads = new EnumMap<>(Kind.class);
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    @Autowired
+    public CustomerBulkheads(CustomerProperties customerProperties, MeterRegistry meterRegistry,
+                             ObjectProvider<TaskDecorator> taskDecorator) {
+        this(customerProperties, meterRegistry, taskDecorator.getIfUnique(() -> task -> task));
+    }
+
+    CustomerBulkheads(CustomerProperties customerProperties, MeterRegistry meterRegistry, TaskDecorator taskDecorator) {
+        CustomerProperties.Bulkheads config = customerProperties.getBulkheads();
+        CustomizableThreadFactory timerThreads = new CustomizableThreadFactory("customer-bulkhead-timer-");
+        timerThreads.setDaemon(true);
+        timer = new ScheduledThreadPoolExecutor(1, timerThreads);
+        // The timeouts of the requests answered in time are cancelled: they must not pile up in the queue.
+        timer.setRemoveOnCancelPolicy(true);
+        bulkheads.put(Kind.POINT_READ, new Bulkhead(Kind.POINT_READ, config.getPointRead(), timer, meterRegistry, taskDecorator));
+        bulkheads.put(Kind.SEARCH, new Bulkhead(Kind.SEARCH, config.getSearch(), timer, meterRegistry, taskDecorator));
+        bulkheads.put(Kind.WRITE, new Bulkhead(Kind.WRITE, config.getWrite(), timer, meterRegistry, taskDecorator));
+    }
+
+    public <T> CompletableFuture<T> supply(Kind kind, Supplier<T> supplier) {
+        return bulkheads.get(kind).supply(supplier);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(bulkhead -> bulkhead.executor.shutdown());
+        timer.shutdownNow();
+    }
+
+    /**
+     * Timeouts scheduled and not yet elapsed nor cancelled.
+     */
+    int pendingTimeouts() {
+        return timer.getQueue().size();
+    }
+
+    private static class Bulkhead {
+
+        private final Kind kind;
+        private final ThreadPoolExecutor executor;
+        private final ScheduledExecutorService timer;
+        private final Duration timeout;
+        private final TaskDecorator taskDecorator;
+        private final Counter rejected;
+        private final Counter timedOut;
+
+        Bulkhead(Kind kind, CustomerProperties.Bulkhead config, ScheduledExecutorService timer,
+                 MeterRegistry meterRegistry, TaskDecorator taskDecorator) {
+            this.kind = kind;
+            this.timer = timer;
+            this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                    new CustomizableThreadFactory("customer-" + kind.tag() + "-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor.allowCoreThreadTimeOut(true);
+            this.timeout = config.getTimeout();
+            this.taskDecorator = taskDecorator;
+            new ExecutorServiceMetrics(executor, "customer." + kind.tag(), Tags.empty()).bindTo(meterRegistry);
+            this.rejected = meterRegistry.counter("tokyo.customer.bulkhead.rejected", "bulkhead", kind.tag());
+            this.timedOut = meterRegistry.counter("tokyo.customer.bulkhead.timeout", "bulkhead", kind.tag());
+        }
+
+        <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            AtomicBoolean started = new AtomicBoolean();
+            try {
+                executor.execute(taskDecorator.decorate(() -> {
+                    // Timed out while queued: nobody waits for the answer any more.
+                    if (!started.compareAndSet(false, true))
+                        return;
+                    try {
+                        future.complete(supplier.get());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                future.completeExceptionally(new CustomerUnavailableException("Too many " + kind.tag() + " requests, please retry."));
+                return future;
+            }
+            ScheduledFuture<?> timeoutTask = timer.schedule(() -> {
+                boolean queued = started.compareAndSet(false, true);
+                if (!queued && kind == Kind.WRITE)
+                    return;
+                if (future.completeExceptionally(new CustomerUnavailableException("The " + kind.tag() + " request took too long, please retry.")))
+                    timedOut.increment();
+            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            future.whenComplete((result, e) -> timeoutTask.cancel(false));
+            return future;
+        }
+    }
+}
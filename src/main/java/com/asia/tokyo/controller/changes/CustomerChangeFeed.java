@@ -0,0 +1,294 @@
+package com.asia.tokyo.controller.changes;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.controller.mapper.DateMapper;
+import com.asia.tokyo.controller.model.CustomerChange;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes the committed customer writes to server-sent event subscribers.
+ * <p>
+ * Every change gets an id {@code <epoch>-<sequence>} and is kept in a ring of the latest
+ * {@code replay-size} changes, so a client reconnecting with Last-Event-ID gets what it missed.
+ * When that is no longer in the ring, or the id comes from before a restart, the client first
+ * gets a {@code reset} event and should read the customers again.
+ * <p>
+ * Each subscriber has a bounded queue drained by a small shared pool. A subscriber whose queue
+ * is full, or whose send has been blocked for {@code send-timeout}, is disconnected instead of
+ * holding memory: it reconnects and resumes from the ring. A blocked send still holds its pool
+ * thread until the container's write timeout. An idle subscriber gets a comment every
+ * {@code heartbeat}, so proxies keep the stream open and a vanished client is noticed.
+ * <p>
+ * The feed is per instance: it only carries the writes committed by this instance, and its ids
+ * are only known to it, so a client reconnecting to another instance gets a reset. Behind several
+ * instances the clients must stick to one, and still miss the writes made by the others.
+ * Metrics: tokyo.customer.changes.subscribers and tokyo.customer.changes.dropped.
+ */
+@Component
+@Profile("!reactive")
+public class CustomerChangeFeed {
+
+    static final String RESET = "reset";
+    static final Entry HEARTBEAT = new Entry(null, null, null);
+    private static final long IDLE = Long.MIN_VALUE;
+
+    private final DateMapper dateMapper;
+    private final Executor executor;
+    private final int subscriberQueue;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Counter dropped;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Entry[] ring;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this, with the ring: a subscriber registers between two changes, never during one.
+    private long lastSequence;
+
+    @Autowired
+    public CustomerChangeFeed(CustomerProperties customerProperties, DateMapper dateMapper, MeterRegistry meterRegistry) {
+        this(customerProperties, dateMapper, meterRegistry,
+                Executors.newFixedThreadPool(customerProperties.getChanges().getThreads(), new CustomizableThreadFactory("customer-changes-")));
+    }
+
+    CustomerChangeFeed(CustomerProperties customerProperties, DateMapper dateMapper, MeterRegistry meterRegistry, Executor executor) {
+        CustomerProperties.Changes config = customerProperties.getChanges();
+        this.dateMapper = dateMapper;
+        this.executor = executor;
+        this.subscriberQueue = config.getSubscriberQueue();
+        this.timeoutMillis = config.getTimeout().toMillis();
+        this.sendTimeoutNanos = config.getSendTimeout().toNanos();
+        this.ring = new Entry[config.getReplaySize()];
+        this.dropped = meterRegistry.counter("tokyo.customer.changes.dropped");
+        Gauge.builder("tokyo.customer.changes.subscribers", subscribers, Set::size)
+                .description("Clients following the customer changes").register(meterRegistry);
+        CustomizableThreadFactory timerThreads = new CustomizableThreadFactory("customer-changes-timer-");
+        timerThreads.setDaemon(true);
+        timer = new ScheduledThreadPoolExecutor(1, timerThreads);
+        long heartbeat = config.getHeartbeat().toMillis();
+        timer.scheduleAtFixedRate(this::heartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        long sendTimeout = config.getSendTimeout().toMillis();
+        timer.scheduleAtFixedRate(() -> closeStalled(System.nanoTime()), sendTimeout, sendTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(new Sink() {
+            @Override
+            public void send(Entry entry) throws IOException {
+                if (entry == HEARTBEAT) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    return;
+                }
+                SseEmitter.SseEventBuilder event = SseEmitter.event().id(entry.id);
+                if (entry.name != null)
+                    event.name(entry.name);
+                emitter.send(event.data(entry.data, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        register(subscriber, lastEventId);
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        CustomerChange change = CustomerChange.builder()
+                .type(event.getType().name())
+                .id(event.getId())
+                .version(event.getVersion())
+                .customerName(event.getCustomerName())
+                .tableNumber(event.getTableNumber())
+                .lastModifiedDate(dateMapper.asOffsetDateTime(event.getLastModifiedDate()))
+                .build();
+        synchronized (this) {
+            long sequence = ++lastSequence;
+            Entry entry = new Entry(id(sequence), null, change);
+            ring[(int) (sequence % ring.length)] = entry;
+            subscribers.forEach(subscriber -> subscriber.offer(entry));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        subscribers.forEach(Subscriber::close);
+        if (executor instanceof ExecutorService)
+            ((ExecutorService) executor).shutdown();
+    }
+
+    void heartbeat() {
+        subscribers.forEach(Subscriber::heartbeat);
+    }
+
+    /**
+     * Disconnects the subscribers whose send has been blocked for longer than the send timeout.
+     */
+    void closeStalled(long now) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.isStalled(now)) {
+                dropped.increment();
+                subscriber.close();
+            }
+        }
+    }
+
+    synchronized void register(Subscriber subscriber, String lastEventId) {
+        subscribers.add(subscriber);
+        if (lastEventId == null)
+            return;
+        long after = sequenceOf(lastEventId);
+        long oldest = Math.max(1, lastSequence - ring.length + 1);
+        if (after < oldest - 1 || after > lastSequence || lastSequence - after > subscriberQueue) {
+            subscriber.offer(new Entry(id(lastSequence), RESET, Collections.emptyMap()));
+            return;
+        }
+        for (long sequence = after + 1; sequence <= lastSequence; sequence++)
+            subscriber.offer(ring[(int) (sequence % ring.length)]);
+    }
+
+    private String id(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * @return the sequence of an id of this epoch, or -1
+     */
+    private long sequenceOf(String eventId) {
+        String prefix = epoch + "-";
+        if (!eventId.startsWith(prefix))
+            return -1;
+        try {
+            return Long.parseLong(eventId.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static final class Entry {
+        final String id;
+        final String name;
+        final Object data;
+
+        Entry(String id, String name, Object data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    interface Sink {
+        void send(Entry entry) throws IOException;
+
+        void close();
+    }
+
+    final class Subscriber {
+        private final Sink sink;
+        private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(subscriberQueue);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean sinkClosed = new AtomicBoolean();
+        private volatile long sendingSince = IDLE;
+
+        Subscriber(Sink sink) {
+            this.sink = sink;
+        }
+
+        void offer(Entry entry) {
+            if (closed.get())
+                return;
+            if (!queue.offer(entry)) {
+                dropped.increment();
+                close();
+                return;
+            }
+            drainLater();
+        }
+
+        void heartbeat() {
+            if (queue.isEmpty())
+                offer(HEARTBEAT);
+        }
+
+        boolean isStalled(long now) {
+            long since = sendingSince;
+            return since != IDLE && now - since > sendTimeoutNanos;
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true))
+                return;
+            subscribers.remove(this);
+            queue.clear();
+            // Completing the emitter would wait for the blocked send: the draining thread closes it on its way out.
+            if (sendingSince == IDLE)
+                closeSink();
+        }
+
+        private void closeSink() {
+            if (sinkClosed.compareAndSet(false, true))
+                sink.close();
+        }
+
+        private void drainLater() {
+            if (draining.compareAndSet(false, true))
+                executor.execute(this::drain);
+        }
+
+        private void drain() {
+            try {
+                Entry entry;
+                while ((entry = queue.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    if (closed.get())
+                        break;
+                    sink.send(entry);
+                    sendingSince = IDLE;
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+            } finally {
+                sendingSince = IDLE;
+                draining.set(false);
+            }
+            if (closed.get())
+                closeSink();
+            // A change offered after the last poll but before the flag was released.
+            else if (!queue.isEmpty())
+                drainLater();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.asia.tokyo.controller.json;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Writes the customers and the lists of customers in JSON from the bytes already encoded for
+ * their id and version, so an unchanged customer goes through Jackson once.
+ * <p>
+ * One entry per customer, served only for the same version: a write bumping the version makes
+ * the entry unused until the next read replaces it, and the change event drops it right away.
+ * A customer without created date is not a whole one and is never cached.
+ * The cache is bounded in bytes (W-TinyLFU eviction); metrics are cache.* with name customer-json.
+ * Only writes, and only JSON: request bodies and the binary formats keep their converters.
+ * The reading of the Jackson base is never reached.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "tokyo.customer.json-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CustomerJsonHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    public static final String NAME = "customer-json";
+
+    /** Rough size of the key, the entry and the buffer header, counted with the bytes. */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final ObjectWriter writer;
+    private final boolean offHeap;
+    private final StatsCounter stats = new ConcurrentStatsCounter();
+    private final Cache<UUID, Fragment> cache;
+
+    public CustomerJsonHttpMessageConverter(CustomerProperties customerProperties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper, MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        CustomerProperties.JsonCache config = customerProperties.getJsonCache();
+        this.writer = objectMapper.writerFor(CustomerDto.class);
+        this.offHeap = config.isOffHeap();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaximumSize().toBytes())
+                .<UUID, Fragment>weigher((id, fragment) -> fragment.bytes.capacity() + ENTRY_OVERHEAD)
+                .recordStats(() -> stats)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.getType() == CustomerChangedEvent.Type.DELETED || event.getVersion() == null) {
+            cache.invalidate(event.getId());
+            return;
+        }
+        cache.asMap().computeIfPresent(event.getId(), (id, cached) -> cached.version >= event.getVersion() ? cached : null);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CustomerDto.class == clazz;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return supports(clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType))
+            return false;
+        if (supports(clazz))
+            return true;
+        return type != null && Collection.class.isAssignableFrom(clazz)
+                && ResolvableType.forType(type).asCollection().resolveGeneric(0) == CustomerDto.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        // Off-heap fragments go through a channel, one for the whole body.
+        WritableByteChannel channel = offHeap ? Channels.newChannel(out) : null;
+        if (body instanceof CustomerDto) {
+            write((CustomerDto) body, out, channel);
+            return;
+        }
+        out.write('[');
+        boolean first = true;
+        for (Object customerDto : (Collection<?>) body) {
+            if (!first)
+                out.write(',');
+            first = false;
+            write((CustomerDto) customerDto, out, channel);
+        }
+        out.write(']');
+    }
+
+    private void write(CustomerDto customerDto, OutputStream out, WritableByteChannel channel) throws IOException {
+        if (customerDto == null || customerDto.getId() == null || customerDto.getVersion() == null || customerDto.getCreatedDate() == null) {
+            out.write(writer.writeValueAsBytes(customerDto));
+            return;
+        }
+        // A hit needs the same version: looked up without statistics, then counted here.
+        Fragment fragment = cache.asMap().get(customerDto.getId());
+        if (fragment != null && fragment.version == customerDto.getVersion()) {
+            stats.recordHits(1);
+        } else {
+            stats.recordMisses(1);
+            fragment = new Fragment(customerDto.getVersion(), wrap(writer.writeValueAsBytes(customerDto)));
+            cache.asMap().merge(customerDto.getId(), fragment, (cached, loaded) -> cached.version > loaded.version ? cached : loaded);
+        }
+        fragment.writeTo(out, channel);
+    }
+
+    private ByteBuffer wrap(byte[] bytes) {
+        if (!offHeap)
+            return ByteBuffer.wrap(bytes);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        return direct;
+    }
+
+    private static final class Fragment {
+        private final long version;
+        private final ByteBuffer bytes;
+
+        private Fragment(long version, ByteBuffer bytes) {
+            this.version = version;
+            this.bytes = bytes;
+        }
+
+        private void writeTo(OutputStream out, WritableByteChannel channel) throws IOException {
+            if (bytes.hasArray()) {
+                out.write(bytes.array(), bytes.arrayOffset(), bytes.capacity());
+                return;
+            }
+            ByteBuffer remaining = bytes.duplicate();
+            while (remaining.hasRemaining())
+                channel.write(remaining);
+        }
+    }
+}
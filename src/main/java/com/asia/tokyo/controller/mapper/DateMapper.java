@@ -6,13 +6,15 @@ import java.sql.Timestamp;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 
+/**
+ * The entity timestamps hold the wall-clock time of the JVM zone, which the DTOs present as UTC.
+ * Every DTO goes through this twice, so each conversion builds a single LocalDateTime on the way.
+ */
 @Component
 public class DateMapper {
     public OffsetDateTime asOffsetDateTime(Timestamp ts){
         if (ts != null){
-            return OffsetDateTime.of(ts.toLocalDateTime().getYear(), ts.toLocalDateTime().getMonthValue(),
-                    ts.toLocalDateTime().getDayOfMonth(), ts.toLocalDateTime().getHour(), ts.toLocalDateTime().getMinute(),
-                    ts.toLocalDateTime().getSecond(), ts.toLocalDateTime().getNano(), ZoneOffset.UTC);
+            return OffsetDateTime.of(ts.toLocalDateTime(), ZoneOffset.UTC);
         } else {
             return null;
         }
@@ -20,9 +22,11 @@ public class DateMapper {
 
     public Timestamp asTimestamp(OffsetDateTime offsetDateTime){
         if(offsetDateTime != null) {
-            return Timestamp.valueOf(offsetDateTime.atZoneSameInstant(ZoneOffset.UTC).toLocalDateTime());
+            if (ZoneOffset.UTC.equals(offsetDateTime.getOffset()))
+                return Timestamp.valueOf(offsetDateTime.toLocalDateTime());
+            return Timestamp.valueOf(offsetDateTime.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime());
         } else {
             return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package com.asia.tokyo.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerBulkDeleteResult {
+
+    private long received;
+
+    private long deleted;
+
+    private long missing;
+
+    private long elapsedMillis;
+
+}
@@ -0,0 +1,21 @@
+package com.asia.tokyo.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerBulkFailure {
+
+    /** Position of the item in the request, starting at 0. */
+    private long index;
+
+    private List<String> errors;
+
+}
@@ -0,0 +1,28 @@
+package com.asia.tokyo.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerBulkResult {
+
+    private long received;
+
+    private long created;
+
+    private long failed;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    private List<CustomerBulkFailure> failures;
+
+}
@@ -0,0 +1,33 @@
+package com.asia.tokyo.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A customer write as pushed to the subscribers of the change stream. A null field was not
+ * changed by the write; a client keeping customers can skip a change older than its version.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerChange {
+
+    private String type;
+
+    private UUID id;
+
+    private Long version;
+
+    private String customerName;
+
+    private String tableNumber;
+
+    private OffsetDateTime lastModifiedDate;
+
+}
@@ -0,0 +1,21 @@
+package com.asia.tokyo.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerLookupResult {
+
+    private List<CustomerDto> customers;
+
+    private List<UUID> missing;
+
+}
@@ -1,5 +1,6 @@
 package com.asia.tokyo.controller.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 
@@ -7,6 +8,8 @@ import java.util.List;
 
 public class CustomerPagedList extends PageImpl<CustomerDto> {
 
+        private String nextCursor;
+
         public CustomerPagedList(List<CustomerDto> content, Pageable pageable, long total) {
         super(content, pageable, total);
         }
@@ -15,4 +18,39 @@ public class CustomerPagedList extends PageImpl<CustomerDto> {
         super(content);
         }
 
-}
\ No newline at end of file
+        /**
+         * Keyset page: the total is not counted, so it is not published. The next cursor alone
+         * tells whether a next page exists.
+         */
+        public CustomerPagedList(List<CustomerDto> content, Pageable pageable, String nextCursor) {
+        super(content, pageable, content.size());
+        this.nextCursor = nextCursor;
+        }
+
+        @Override
+        public boolean hasNext() {
+        return nextCursor != null;
+        }
+
+        @Override
+        public boolean isLast() {
+        return !hasNext();
+        }
+
+        @JsonIgnore
+        @Override
+        public long getTotalElements() {
+        return super.getTotalElements();
+        }
+
+        @JsonIgnore
+        @Override
+        public int getTotalPages() {
+        return super.getTotalPages();
+        }
+
+        public String getNextCursor() {
+        return nextCursor;
+        }
+
+}
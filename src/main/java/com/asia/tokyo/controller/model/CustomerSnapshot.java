@@ -0,0 +1,22 @@
+package com.asia.tokyo.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Every customer with the version of that listing, both read in one transaction.
+ * The customers are null when the caller already held that version.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerSnapshot {
+
+    private String version;
+
+    private Set<CustomerDto> customers;
+
+}
@@ -0,0 +1,22 @@
+package com.asia.tokyo.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CustomerTableOccupancy {
+
+    private String tableNumber;
+
+    private long customers;
+
+    private OffsetDateTime lastModifiedDate;
+
+}
@@ -1,5 +1,6 @@
 package com.asia.tokyo.domain;
 
+import com.asia.tokyo.domain.id.EntityIdTypeContributor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -25,11 +26,14 @@ public class BaseEntity {
         this.lastModifiedDate = lastModifiedDate;
     }
 
+    // Generated in memory before the insert, which keeps JDBC insert batching possible.
+    // Time ordered, and stored as text or binary depending on tokyo.id-storage (see EntityIdTypeContributor,
+    // which sizes the column as well).
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
-    @Type(type="org.hibernate.type.UUIDCharType")
-    @Column(length = 36, columnDefinition = "varchar", updatable = false, nullable = false )
+    @GenericGenerator(name = "UUID", strategy = "com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator")
+    @Type(type = EntityIdTypeContributor.TYPE_NAME)
+    @Column(updatable = false, nullable = false )
     private UUID id;
 
     @Version
@@ -0,0 +1,49 @@
+package com.asia.tokyo.domain;
+
+import com.asia.tokyo.domain.id.EntityIdTypeContributor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.*;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * A customer write not yet applied to the MongoDB read model. Inserted in the transaction of the
+ * write, deleted once projected. It only names the customer: the projection reads its current state.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(indexes = @Index(name = "idx_customer_outbox_created_date", columnList = "createdDate"))
+public class CustomerOutbox {
+    @Builder
+    public CustomerOutbox(UUID customerId, String type) {
+        this.customerId = customerId;
+        this.type = type;
+    }
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator")
+    @Type(type = EntityIdTypeContributor.TYPE_NAME)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Type(type = EntityIdTypeContributor.TYPE_NAME)
+    @Column(updatable = false, nullable = false)
+    private UUID customerId;
+
+    @Column(length = 7, updatable = false, nullable = false)
+    private String type;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Timestamp createdDate;
+}
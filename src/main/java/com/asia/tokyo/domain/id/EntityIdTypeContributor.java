@@ -0,0 +1,119 @@
+package com.asia.tokyo.domain.id;
+
+import org.hibernate.annotations.Type;
+import org.hibernate.boot.model.TypeContributions;
+import org.hibernate.boot.model.TypeContributor;
+import org.hibernate.boot.spi.InFlightMetadataCollector;
+import org.hibernate.boot.spi.MetadataContributor;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.PersistentClass;
+import org.hibernate.mapping.Property;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.UUIDBinaryType;
+import org.hibernate.type.UUIDCharType;
+import org.jboss.jandex.IndexView;
+
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Registers the {@value #TYPE_NAME} type used by {@code BaseEntity.id}, stored as selected by the
+ * {@value #STORAGE_SETTING} Hibernate setting ({@code spring.jpa.properties.tokyo.id-storage}):
+ * <ul>
+ *     <li>{@code char} (default): 36 characters text, the historical layout;</li>
+ *     <li>{@code binary}: 16 bytes, less than half the size in the primary key and in every secondary index.</li>
+ * </ul>
+ * The columns of that type are sized here too, 36 or 16: a binary column longer than the value would be
+ * padded, and would no longer match the lookups.
+ * <p>
+ * Loaded by Hibernate through {@code META-INF/services}, so it applies to every persistence unit.
+ */
+public class EntityIdTypeContributor implements TypeContributor, MetadataContributor {
+
+    public static final String TYPE_NAME = "entity-id";
+
+    public static final String STORAGE_SETTING = "tokyo.id-storage";
+
+    @Override
+    public void contribute(TypeContributions typeContributions, ServiceRegistry serviceRegistry) {
+        typeContributions.contributeType(isBinary(serviceRegistry) ? new BinaryEntityIdType() : new CharEntityIdType());
+    }
+
+    @Override
+    public void contribute(InFlightMetadataCollector metadataCollector, IndexView jandexIndex) {
+        int length = isBinary(metadataCollector.getBootstrapContext().getServiceRegistry()) ? 16 : 36;
+        for (PersistentClass entity : metadataCollector.getEntityBindings()) {
+            if (entity.getMappedClass() == null)
+                continue;
+            if (entity.getIdentifierProperty() != null)
+                size(entity.getMappedClass(), entity.getIdentifierProperty(), length);
+            for (Iterator<?> properties = entity.getPropertyIterator(); properties.hasNext(); )
+                size(entity.getMappedClass(), (Property) properties.next(), length);
+        }
+    }
+
+    private static boolean isBinary(ServiceRegistry serviceRegistry) {
+        String storage = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(STORAGE_SETTING, StandardConverters.STRING, "char");
+        switch (storage.toLowerCase(Locale.ROOT)) {
+            case "char":
+                return false;
+            case "binary":
+                return true;
+            default:
+                throw new IllegalArgumentException(STORAGE_SETTING + " must be char or binary, not " + storage);
+        }
+    }
+
+    /**
+     * The type of the values is only set by the second passes, after the contributors: the fields are
+     * looked at instead.
+     */
+    private static void size(Class<?> entity, Property property, int length) {
+        if (!isEntityId(entity, property.getName()))
+            return;
+        for (Iterator<?> columns = property.getValue().getColumnIterator(); columns.hasNext(); ) {
+            Object column = columns.next();
+            if (column instanceof Column)
+                ((Column) column).setLength(length);
+        }
+    }
+
+    private static boolean isEntityId(Class<?> entity, String property) {
+        for (Class<?> type = entity; type != null; type = type.getSuperclass()) {
+            try {
+                Type annotation = type.getDeclaredField(property).getAnnotation(Type.class);
+                return annotation != null && TYPE_NAME.equals(annotation.type());
+            } catch (NoSuchFieldException e) {
+                // Declared by a superclass.
+            }
+        }
+        return false;
+    }
+
+    private static class CharEntityIdType extends UUIDCharType {
+        @Override
+        public String getName() {
+            return TYPE_NAME;
+        }
+
+        @Override
+        public String[] getRegistrationKeys() {
+            return new String[]{TYPE_NAME};
+        }
+    }
+
+    private static class BinaryEntityIdType extends UUIDBinaryType {
+        @Override
+        public String getName() {
+            return TYPE_NAME;
+        }
+
+        @Override
+        public String[] getRegistrationKeys() {
+            return new String[]{TYPE_NAME};
+        }
+    }
+}
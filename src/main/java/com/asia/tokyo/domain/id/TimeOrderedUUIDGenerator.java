@@ -0,0 +1,57 @@
+package com.asia.tokyo.domain.id;
+
+import com.asia.tokyo.domain.BaseEntity;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates UUIDv7-style identifiers: 48 bits of Unix milliseconds, a 12 bits counter
+ * and 62 random bits. Successive ids grow, in binary as in their text form, so inserts land
+ * at the right-hand edge of the primary key index instead of all over it.
+ * <p>
+ * With the {@value #KEEP_ASSIGNED_SETTING} Hibernate setting, an id already set on the new entity
+ * is kept: the sharding picks the shard of a customer from its id before it is saved.
+ */
+public class TimeOrderedUUIDGenerator implements IdentifierGenerator, Configurable {
+
+    public static final String KEEP_ASSIGNED_SETTING = "tokyo.id-keep-assigned";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Last (milliseconds << 12 | counter) handed out; the counter borrows the next millisecond when it overflows. */
+    private static final AtomicLong LAST_STAMP = new AtomicLong();
+
+    private boolean keepAssigned;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        keepAssigned = serviceRegistry.getService(ConfigurationService.class)
+                .getSetting(KEEP_ASSIGNED_SETTING, StandardConverters.BOOLEAN, false);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (keepAssigned && object instanceof BaseEntity && ((BaseEntity) object).getId() != null)
+            return ((BaseEntity) object).getId();
+        return next();
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        long stamp = LAST_STAMP.updateAndGet(last -> now > last ? now : last + 1);
+        long mostSigBits = (stamp >>> 12) << 16 | 0x7000L | (stamp & 0xFFFL);
+        long leastSigBits = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,11 @@
+package com.asia.tokyo.exception;
+
+/**
+ * The request could not be served in time: its bulkhead was full or too slow, or a shard did not answer.
+ * Worth retrying later.
+ */
+public class CustomerUnavailableException extends RuntimeException {
+    public CustomerUnavailableException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,10 @@
+package com.asia.tokyo.exception;
+
+/**
+ * The customer changed since the version the client based its write on.
+ */
+public class CustomerVersionConflictException extends CustomerException {
+    public CustomerVersionConflictException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -1,27 +1,67 @@
 package com.asia.tokyo.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.support.WebExchangeBindException;
 
 import javax.validation.ConstraintViolationException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 @ControllerAdvice
 public class GlobalExceptionAdvice {
 
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private final MeterRegistry meterRegistry;
+
+    public GlobalExceptionAdvice(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ResponseBody
     @ExceptionHandler(CustomerException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     String adminExceptionHandler(CustomerException ex) {
+        count(ex.getMessage());
+        return ex.getMessage();
+    }
+
+    @ResponseBody
+    @ExceptionHandler(CustomerVersionConflictException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    String versionConflictExceptionHandler(CustomerVersionConflictException ex) {
+        count(ex.getMessage());
         return ex.getMessage();
     }
 
+    /**
+     * A concurrent write committed between the version check and the commit of a conditional update.
+     */
+    @ResponseBody
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    String optimisticLockingExceptionHandler(ObjectOptimisticLockingFailureException ex) {
+        String message = "This customer was modified meanwhile.";
+        count(message);
+        return message;
+    }
+
+    @ExceptionHandler(CustomerUnavailableException.class)
+    public ResponseEntity<String> unavailableExceptionHandler(CustomerUnavailableException ex) {
+        count(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(ex.getMessage());
+    }
+
     @ExceptionHandler(ConstraintViolationException.class)
     public ResponseEntity<List> validationErrorHandler(ConstraintViolationException e){
         List<String> errors = new ArrayList<>(e.getConstraintViolations().size());
@@ -38,4 +78,19 @@ public class GlobalExceptionAdvice {
         return new ResponseEntity(ex.getAllErrors(), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<List> handleWebExchangeBindException(WebExchangeBindException ex){
+        return new ResponseEntity(ex.getAllErrors(), HttpStatus.BAD_REQUEST);
+    }
+
+    private void count(String message) {
+        meterRegistry.counter("tokyo.customer.errors", "category", category(message)).increment();
+    }
+
+    /**
+     * The message with its numbers blanked: "The customer at line 12 ..." and "... line 40 ..." count together.
+     */
+    static String category(String message) {
+        return message == null ? "unknown" : NUMBER.matcher(message).replaceAll("N");
+    }
 }
@@ -0,0 +1,15 @@
+package com.asia.tokyo.repository;
+
+import com.asia.tokyo.domain.CustomerOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface CustomerOutboxRepository extends JpaRepository<CustomerOutbox, UUID> {
+
+    @Query("SELECT o FROM CustomerOutbox o ORDER BY o.createdDate ASC, o.id ASC")
+    List<CustomerOutbox> findOldest(Pageable pageable);
+}
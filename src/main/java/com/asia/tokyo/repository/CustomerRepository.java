@@ -1,14 +1,123 @@
 package com.asia.tokyo.repository;
 
 import com.asia.tokyo.domain.Customer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
-public interface CustomerRepository extends PagingAndSortingRepository<Customer, UUID> {
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface CustomerRepository extends PagingAndSortingRepository<Customer, UUID>, CustomerRepositoryCustom {
+
+    String STREAM_FETCH_SIZE = "500";
 
     @Query("SELECT c FROM Customer c WHERE c.customerName like ?1")
     List<Customer> findAllByCustomerNameLike(String customerName);
+
+    @Query("SELECT c FROM Customer c WHERE c.customerName like ?1")
+    List<Customer> findAllByCustomerNameLike(String customerName, Pageable pageable);
+
+    @Query("SELECT c FROM Customer c WHERE c.id IN ?1 AND c.customerName like ?2")
+    List<Customer> findAllByIdInAndCustomerNameLike(Collection<UUID> ids, String customerName, Pageable pageable);
+
+    @Query("SELECT c FROM Customer c ORDER BY c.createdDate ASC, c.id ASC")
+    List<Customer> findFirstPageAsc(Pageable pageable);
+
+    @Query("SELECT c FROM Customer c WHERE c.createdDate >= ?1 AND (c.createdDate > ?1 OR c.id > ?2) ORDER BY c.createdDate ASC, c.id ASC")
+    List<Customer> findPageAfterAsc(Timestamp createdDate, UUID id, Pageable pageable);
+
+    @Query("SELECT c FROM Customer c ORDER BY c.createdDate DESC, c.id DESC")
+    List<Customer> findFirstPageDesc(Pageable pageable);
+
+    @Query("SELECT c FROM Customer c WHERE c.createdDate <= ?1 AND (c.createdDate < ?1 OR c.id < ?2) ORDER BY c.createdDate DESC, c.id DESC")
+    List<Customer> findPageAfterDesc(Timestamp createdDate, UUID id, Pageable pageable);
+
+    /**
+     * Must be consumed inside a transaction, and closed.
+     * On MySQL the fetch size is only honoured with useCursorFetch=true on the JDBC url.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT c FROM Customer c")
+    Stream<Customer> streamAll();
+
+    /**
+     * Changes with any creation, update or deletion: enough to tell whether a listing of every customer changed.
+     */
+    @Query("SELECT COUNT(c) AS count, MAX(c.lastModifiedDate) AS lastModifiedDate, SUM(c.version) AS versions FROM Customer c")
+    CustomerStamp findStamp();
+
+    /**
+     * One statement, without loading the customer first as deleteById does.
+     * Answers the number of deleted rows: 0 when the id is unknown.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = ?1")
+    int deleteByIdReturningCount(UUID id);
+
+    /**
+     * Answers 0 when the id is unknown or the customer is at another version.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id = ?1 AND c.version = ?2")
+    int deleteByIdAndVersion(UUID id, Long version);
+
+    /**
+     * The ids among these that exist, locked until the end of the transaction so that they can be deleted
+     * and announced without a concurrent delete in between.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.id FROM Customer c WHERE c.id IN ?1")
+    List<UUID> lockIdsByIdIn(Collection<UUID> ids);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Customer c WHERE c.id IN ?1")
+    int deleteByIdIn(Collection<UUID> ids);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT c.id AS id, c.customerName AS customerName FROM Customer c")
+    Stream<CustomerName> streamAllCustomerNames();
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT c.id AS id, c.tableNumber AS tableNumber, c.version AS version, c.lastModifiedDate AS lastModifiedDate FROM Customer c")
+    Stream<CustomerSeat> streamAllCustomerSeats();
+
+    interface CustomerName {
+        UUID getId();
+
+        String getCustomerName();
+    }
+
+    interface CustomerSeat {
+        UUID getId();
+
+        String getTableNumber();
+
+        Long getVersion();
+
+        Timestamp getLastModifiedDate();
+    }
+
+    interface CustomerStamp {
+        Long getCount();
+
+        Timestamp getLastModifiedDate();
+
+        Long getVersions();
+    }
 }
@@ -0,0 +1,14 @@
+package com.asia.tokyo.repository;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+public interface CustomerRepositoryCustom {
+
+    /**
+     * One UPDATE of the given columns only, a null value leaving its column unchanged.
+     * The version is checked and incremented by the same statement.
+     * Answers the number of updated rows: 0 when the id is unknown or the customer is at another version.
+     */
+    int updatePartially(UUID id, long expectedVersion, String customerName, String tableNumber, Timestamp lastModifiedDate);
+}
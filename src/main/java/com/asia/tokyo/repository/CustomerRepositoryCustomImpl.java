@@ -0,0 +1,36 @@
+package com.asia.tokyo.repository;
+
+import com.asia.tokyo.domain.Customer;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+public class CustomerRepositoryCustomImpl implements CustomerRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public CustomerRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional
+    public int updatePartially(UUID id, long expectedVersion, String customerName, String tableNumber, Timestamp lastModifiedDate) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Customer> update = builder.createCriteriaUpdate(Customer.class);
+        Root<Customer> customer = update.from(Customer.class);
+        if (customerName != null)
+            update.set(customer.<String>get("customerName"), customerName);
+        if (tableNumber != null)
+            update.set(customer.<String>get("tableNumber"), tableNumber);
+        update.set(customer.<Long>get("version"), builder.sum(customer.<Long>get("version"), 1L));
+        update.set(customer.<Timestamp>get("lastModifiedDate"), lastModifiedDate);
+        update.where(builder.equal(customer.get("id"), id), builder.equal(customer.get("version"), expectedVersion));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -0,0 +1,52 @@
+package com.asia.tokyo.repository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Times every call to {@link CustomerRepository}, tagged with the method and the exception if any,
+ * and records the number of rows of the methods answering a collection.
+ * Streams are timed until they are handed over, not while they are consumed.
+ */
+@Aspect
+@Component
+public class CustomerRepositoryMetrics {
+
+    static final String TIMER = "tokyo.customer.repository";
+    static final String RESULTS = "tokyo.customer.repository.results";
+
+    private final MeterRegistry meterRegistry;
+
+    public CustomerRepositoryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("this(com.asia.tokyo.repository.CustomerRepository)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        String exception = "none";
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof Collection)
+                DistributionSummary.builder(RESULTS).tag("method", method)
+                        .description("Rows answered by the customer repository, per call")
+                        .register(meterRegistry).record(((Collection<?>) result).size());
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER).tag("method", method).tag("exception", exception)
+                    .description("Time spent in the customer repository, per call")
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,594 @@
+package com.asia.tokyo.repository;
+
+import com.asia.tokyo.config.datasource.DataSourceRoutingProperties;
+import com.asia.tokyo.config.datasource.DataSourceShard;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spreads the customers over the shards of tokyo.datasource.shards by the hash of their id:
+ * <ul>
+ *     <li>a call for one id or one customer runs on its shard, and keeps the current transaction there;</li>
+ *     <li>a call for several ids or customers runs on each of their shards, in parallel, and the answers are merged;</li>
+ *     <li>any other call runs on every shard in parallel: the counts are added, the booleans or-ed, the streams
+ *     merged as their rows come, and the lists, sets and pages merged in their order, if any.</li>
+ * </ul>
+ * A page is read from each shard from its first row up to its last, so a deep page costs its offset on every
+ * shard; the pages are then merged in their order, the offset skipped, and their totals added. A return type
+ * that cannot be merged refuses the startup. A shard answering later than tokyo.datasource.sharding.timeout
+ * ends the call with a {@link CustomerUnavailableException}. The parallel calls run in their own transactions:
+ * a write to several shards is not atomic, and a transaction cannot span shards; to write several customers
+ * atomically, {@link #byShard(List, Function) split} them and write each shard in a transaction of its own,
+ * {@link DataSourceShard#callOnShard(Integer, java.util.function.Supplier) on} that shard.
+ * <p>
+ * Metrics: executor.* tagged name=customer.shards, and tokyo.customer.shard.timeout tagged shard.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "tokyo.datasource.sharding", name = "enabled", havingValue = "true")
+public class CustomerShardRouter {
+
+    static final String TIMEOUTS = "tokyo.customer.shard.timeout";
+
+    /**
+     * The order of the id column, as the keyset queries compare it: the unsigned bytes of BINARY(16),
+     * which is also the order of the 36 characters, lower case hex digits at fixed places. A cursor
+     * then resolves the same rows sharded or not, whatever the id storage.
+     */
+    static final Comparator<UUID> STORED_ID_ORDER = Comparator.comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private static final Comparator<Customer> OLDEST_FIRST = Comparator.comparing(Customer::getCreatedDate)
+            .thenComparing(Customer::getId, STORED_ID_ORDER);
+
+    /** The keyset pages, sorted by each shard and merged in the same order. */
+    private static final Map<String, Comparator<Customer>> PAGE_ORDERS = Map.of(
+            "findFirstPageAsc", OLDEST_FIRST,
+            "findPageAfterAsc", OLDEST_FIRST,
+            "findFirstPageDesc", OLDEST_FIRST.reversed(),
+            "findPageAfterDesc", OLDEST_FIRST.reversed());
+
+    private final int shards;
+    private final long timeoutMillis;
+    private final int streamBuffer;
+    private final ThreadPoolExecutor executor;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+    private final ObjectProvider<EntityManager> entityManager;
+    private final MeterRegistry meterRegistry;
+
+    public CustomerShardRouter(DataSourceRoutingProperties properties, ObjectProvider<PlatformTransactionManager> transactionManager,
+                               ObjectProvider<EntityManager> entityManager, MeterRegistry meterRegistry) {
+        DataSourceRoutingProperties.Sharding config = properties.getSharding();
+        this.shards = properties.getShards().size();
+        this.timeoutMillis = config.getTimeout().toMillis();
+        this.streamBuffer = config.getStreamBuffer();
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("customer-shard-"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.transactionManager = transactionManager;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
+        new ExecutorServiceMetrics(executor, "customer.shards", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Every call that is not for one id or one customer is merged: its return type must be mergeable.
+     */
+    @PostConstruct
+    public void checkMethods() {
+        for (Method method : CustomerRepository.class.getMethods()) {
+            Class<?>[] parameters = method.getParameterTypes();
+            boolean oneShard = parameters.length > 0
+                    && (parameters[0].isAssignableFrom(UUID.class) || parameters[0].isAssignableFrom(Customer.class));
+            if (!oneShard && !isMergeable(method))
+                throw new IllegalStateException("CustomerRepository." + method.getName() + " cannot be merged across shards: "
+                        + method.getReturnType().getSimpleName() + " is not a mergeable return type.");
+        }
+    }
+
+    private static boolean isMergeable(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == Stream.class)
+            // Merged as the rows come: in no order.
+            return Arrays.stream(method.getParameterTypes())
+                    .noneMatch(parameter -> Pageable.class.isAssignableFrom(parameter) || Sort.class.isAssignableFrom(parameter));
+        return type == void.class || type == int.class || type == long.class || type == boolean.class
+                || type == CustomerRepository.CustomerStamp.class || type == Page.class || type == Set.class
+                || (Iterable.class.isAssignableFrom(type) && type.isAssignableFrom(ArrayList.class));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Spreads the hash of the id over the shards: the time ordered ids share their first bits.
+     */
+    static int shardOf(UUID id, int shards) {
+        long hash = id.getMostSignificantBits() ^ id.getLeastSignificantBits();
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return Math.floorMod(hash ^ (hash >>> 33), shards);
+    }
+
+    /**
+     * Gives the new customers their ids, and splits the items by the shard of their customer, in their order.
+     */
+    public <T> Map<Integer, List<T>> byShard(List<T> items, Function<T, Customer> customerOf) {
+        Map<Integer, List<T>> byShard = new TreeMap<>();
+        for (T item : items)
+            byShard.computeIfAbsent(shardOf(assignId(customerOf.apply(item)), shards), shard -> new ArrayList<>()).add(item);
+        return byShard;
+    }
+
+    /**
+     * Splits the ids by shard, in their order.
+     */
+    public Map<Integer, List<UUID>> idsByShard(List<UUID> ids) {
+        Map<Integer, List<UUID>> byShard = new TreeMap<>();
+        for (UUID id : ids)
+            byShard.computeIfAbsent(shardOf(id, shards), shard -> new ArrayList<>()).add(id);
+        return byShard;
+    }
+
+    @Around("this(com.asia.tokyo.repository.CustomerRepository)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        // Already a part of a call spread over the shards.
+        if (DataSourceShard.isEntered())
+            return joinPoint.proceed();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object[] args = joinPoint.getArgs();
+        Object first = args.length == 0 ? null : args[0];
+        if (first instanceof UUID)
+            return onShard(shardOf((UUID) first, shards), joinPoint);
+        if (first instanceof Customer)
+            return onShard(shardOf(assignId((Customer) first), shards), joinPoint);
+        if (method.getReturnType() == Stream.class)
+            return stream(method, joinPoint.getThis(), args);
+        Pageable pageable = pageable(args);
+        Sort sort = sort(args, pageable);
+        Object[] shardArgs = upToPageEnd(args, pageable);
+        if (first instanceof Iterable && !(first instanceof Sort))
+            return merge(method, pageable, sort, onShards(method, joinPoint.getThis(), argsByShard(shardArgs)));
+        Map<Integer, Object[]> everyShard = new LinkedHashMap<>();
+        for (int shard = 0; shard < shards; shard++)
+            everyShard.put(shard, shardArgs);
+        return merge(method, pageable, sort, onShards(method, joinPoint.getThis(), everyShard));
+    }
+
+    private Object onShard(int shard, ProceedingJoinPoint joinPoint) throws Throwable {
+        DataSourceShard.bindToTransaction(shard);
+        Integer previous = DataSourceShard.enter(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            DataSourceShard.restore(previous);
+        }
+    }
+
+    /**
+     * A new customer gets its id now, as the save would have given it, to know its shard.
+     */
+    private static UUID assignId(Customer customer) {
+        if (customer.getVersion() == null)
+            customer.setId(TimeOrderedUUIDGenerator.next());
+        return customer.getId();
+    }
+
+    private static Pageable pageable(Object[] args) {
+        for (Object arg : args)
+            if (arg instanceof Pageable)
+                return (Pageable) arg;
+        return null;
+    }
+
+    private static Sort sort(Object[] args, Pageable pageable) {
+        if (pageable != null)
+            return pageable.getSort();
+        for (Object arg : args)
+            if (arg instanceof Sort)
+                return (Sort) arg;
+        return Sort.unsorted();
+    }
+
+    /**
+     * Each shard answers the rows of the page and every row before it: any of them may be on the merged page.
+     */
+    private static Object[] upToPageEnd(Object[] args, Pageable pageable) {
+        if (pageable == null || pageable.isUnpaged() || pageable.getOffset() == 0)
+            return args;
+        Object[] shardArgs = args.clone();
+        for (int i = 0; i < shardArgs.length; i++)
+            if (shardArgs[i] == pageable)
+                shardArgs[i] = PageRequest.of(0, Math.toIntExact(pageable.getOffset() + pageable.getPageSize()), pageable.getSort());
+        return shardArgs;
+    }
+
+    /**
+     * Splits the ids or customers of the first argument by shard, the other arguments being the same.
+     */
+    private Map<Integer, Object[]> argsByShard(Object[] args) {
+        Map<Integer, List<Object>> keys = new LinkedHashMap<>();
+        for (Object key : (Iterable<?>) args[0]) {
+            UUID id = key instanceof Customer ? assignId((Customer) key) : (UUID) key;
+            keys.computeIfAbsent(shardOf(id, shards), shard -> new ArrayList<>()).add(key);
+        }
+        Map<Integer, Object[]> argsByShard = new LinkedHashMap<>();
+        keys.forEach((shard, shardKeys) -> {
+            Object[] shardArgs = args.clone();
+            shardArgs[0] = shardKeys;
+            argsByShard.put(shard, shardArgs);
+        });
+        return argsByShard;
+    }
+
+    private List<Object> onShards(Method method, Object repository, Map<Integer, Object[]> argsByShard) {
+        Map<Integer, Future<Object>> answers = new LinkedHashMap<>();
+        argsByShard.forEach((shard, args) -> answers.put(shard, executor.submit(() -> {
+            Integer previous = DataSourceShard.enter(shard);
+            try {
+                return invoke(method, repository, args);
+            } finally {
+                DataSourceShard.restore(previous);
+            }
+        })));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<Object> results = new ArrayList<>(answers.size());
+        try {
+            for (Map.Entry<Integer, Future<Object>> answer : answers.entrySet())
+                results.add(await(answer.getKey(), answer.getValue(), deadline));
+        } finally {
+            answers.values().forEach(answer -> answer.cancel(true));
+        }
+        return results;
+    }
+
+    private Object await(int shard, Future<Object> answer, long deadline) {
+        try {
+            return answer.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw timedOut(List.of(shard));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new UndeclaredThrowableException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomerUnavailableException("Interrupted while waiting for shard " + shard + ".");
+        }
+    }
+
+    private CustomerUnavailableException timedOut(List<Integer> late) {
+        late.forEach(shard -> meterRegistry.counter(TIMEOUTS, "shard", Integer.toString(shard)).increment());
+        return new CustomerUnavailableException("Shard " + late + " did not answer within " + timeoutMillis + " ms, please retry.");
+    }
+
+    private static Object invoke(Method method, Object repository, Object[] args) {
+        try {
+            return method.invoke(repository, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw new UndeclaredThrowableException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object merge(Method method, Pageable pageable, Sort sort, List<Object> results) {
+        Class<?> type = method.getReturnType();
+        if (type == void.class)
+            return null;
+        if (type == int.class)
+            return results.stream().mapToInt(result -> (Integer) result).sum();
+        if (type == long.class)
+            return results.stream().mapToLong(result -> (Long) result).sum();
+        if (type == boolean.class)
+            return results.stream().anyMatch(Boolean.TRUE::equals);
+        if (type == CustomerRepository.CustomerStamp.class)
+            return Stamp.of((List<CustomerRepository.CustomerStamp>) (List<?>) results);
+        Comparator<Object> order = (Comparator<Object>) (Comparator<?>) PAGE_ORDERS.get(method.getName());
+        if (order == null)
+            order = comparing(sort);
+        boolean paged = pageable != null && pageable.isPaged();
+        List<Object> merged = merge(results, order, paged ? pageable.getOffset() : 0, paged ? pageable.getPageSize() : Long.MAX_VALUE);
+        if (type == Page.class)
+            return new PageImpl<>(merged, pageable == null ? Pageable.unpaged() : pageable,
+                    results.stream().mapToLong(result -> ((Page<?>) result).getTotalElements()).sum());
+        if (type == Set.class)
+            return new LinkedHashSet<>(merged);
+        return merged;
+    }
+
+    /**
+     * A k-way merge of the rows of the shards, each sorted in the same order, or their concatenation
+     * in the order of the shards without one.
+     */
+    private static List<Object> merge(List<Object> results, Comparator<Object> order, long skip, long limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, results.size()), order == null
+                ? Comparator.comparingInt(cursor -> cursor.shard)
+                : Comparator.<Cursor, Object>comparing(cursor -> cursor.head, order).thenComparingInt(cursor -> cursor.shard));
+        for (int shard = 0; shard < results.size(); shard++) {
+            Cursor cursor = new Cursor(shard, ((Iterable<?>) results.get(shard)).iterator());
+            if (cursor.advance())
+                heads.add(cursor);
+        }
+        List<Object> merged = new ArrayList<>();
+        long skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor cursor = heads.poll();
+            if (skipped < skip)
+                skipped++;
+            else
+                merged.add(cursor.head);
+            if (cursor.advance())
+                heads.add(cursor);
+        }
+        return merged;
+    }
+
+    /**
+     * The order of the database for these properties: null first when ascending, ids as stored.
+     */
+    private static Comparator<Object> comparing(Sort sort) {
+        Comparator<Object> order = null;
+        for (Sort.Order property : sort) {
+            Comparator<Object> byProperty = Comparator.comparing(row -> valueOf(row, property), values(property));
+            order = order == null ? byProperty : order.thenComparing(byProperty);
+        }
+        return order;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable valueOf(Object row, Sort.Order property) {
+        Object value = new BeanWrapperImpl(row).getPropertyValue(property.getProperty());
+        if (value instanceof UUID)
+            return new StoredId((UUID) value);
+        if (value instanceof String && property.isIgnoreCase())
+            return value.toString().toLowerCase(Locale.ROOT);
+        return (Comparable) value;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Comparable> values(Sort.Order property) {
+        Comparator<Comparable> values = Comparator.naturalOrder();
+        switch (property.getNullHandling()) {
+            case NULLS_FIRST:
+                return Comparator.nullsFirst(property.isAscending() ? values : values.reversed());
+            case NULLS_LAST:
+                return Comparator.nullsLast(property.isAscending() ? values : values.reversed());
+            default:
+                Comparator<Comparable> nullLowest = Comparator.nullsFirst(values);
+                return property.isAscending() ? nullLowest : nullLowest.reversed();
+        }
+    }
+
+    /**
+     * Each shard is read by its own thread, in its own read-only transaction, into a bounded buffer
+     * the stream takes the rows from as they come. Closing the stream stops the readers.
+     */
+    private Stream<Object> stream(Method method, Object repository, Object[] args) {
+        BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(streamBuffer);
+        AtomicBoolean closed = new AtomicBoolean();
+        List<Future<?>> readers = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            int reading = shard;
+            readers.add(executor.submit(() -> read(reading, method, repository, args, buffer, closed)));
+        }
+        Iterator<Object> rows = new Iterator<Object>() {
+            private final boolean[] ended = new boolean[shards];
+            private int endedCount;
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && endedCount < shards) {
+                    Object taken = take(buffer, ended);
+                    if (taken instanceof End) {
+                        End end = (End) taken;
+                        if (end.failure != null)
+                            throw end.failure;
+                        ended[end.shard] = true;
+                        endedCount++;
+                    } else {
+                        next = taken;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Object row = next;
+                next = null;
+                return row;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    closed.set(true);
+                    readers.forEach(reader -> reader.cancel(true));
+                });
+    }
+
+    private Object take(BlockingQueue<Object> buffer, boolean[] ended) {
+        try {
+            Object taken = buffer.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (taken == null) {
+                List<Integer> late = new ArrayList<>();
+                for (int shard = 0; shard < ended.length; shard++)
+                    if (!ended[shard])
+                        late.add(shard);
+                throw timedOut(late);
+            }
+            return taken;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomerUnavailableException("Interrupted while reading the shards.");
+        }
+    }
+
+    private void read(int shard, Method method, Object repository, Object[] args, BlockingQueue<Object> buffer, AtomicBoolean closed) {
+        RuntimeException failure = null;
+        Integer previous = DataSourceShard.enter(shard);
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager.getObject());
+            transactionTemplate.setReadOnly(true);
+            EntityManager entityManager = this.entityManager.getObject();
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<?> rows = (Stream<?>) invoke(method, repository, args)) {
+                    Iterator<?> iterator = rows.iterator();
+                    while (!closed.get() && iterator.hasNext()) {
+                        Object row = iterator.next();
+                        // Keeps the persistence context of the reader from growing with the shard.
+                        if (row instanceof Customer)
+                            entityManager.detach(row);
+                        if (!put(buffer, row, closed))
+                            return;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            failure = e;
+        } finally {
+            DataSourceShard.restore(previous);
+        }
+        put(buffer, new End(shard, failure), closed);
+    }
+
+    /**
+     * @return false once the stream is closed
+     */
+    private static boolean put(BlockingQueue<Object> buffer, Object item, AtomicBoolean closed) {
+        try {
+            while (!closed.get())
+                if (buffer.offer(item, 100, TimeUnit.MILLISECONDS))
+                    return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @AllArgsConstructor
+    private static class StoredId implements Comparable<StoredId> {
+        private final UUID id;
+
+        @Override
+        public int compareTo(StoredId other) {
+            return STORED_ID_ORDER.compare(id, other.id);
+        }
+    }
+
+    private static class Cursor {
+        private final int shard;
+        private final Iterator<?> rows;
+        private Object head;
+
+        Cursor(int shard, Iterator<?> rows) {
+            this.shard = shard;
+            this.rows = rows;
+        }
+
+        boolean advance() {
+            if (!rows.hasNext())
+                return false;
+            head = rows.next();
+            return true;
+        }
+    }
+
+    @AllArgsConstructor
+    private static class End {
+        private final int shard;
+        private final RuntimeException failure;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Stamp implements CustomerRepository.CustomerStamp {
+        private final Long count;
+        private final Timestamp lastModifiedDate;
+        private final Long versions;
+
+        static Stamp of(List<CustomerRepository.CustomerStamp> stamps) {
+            long count = 0;
+            long versions = 0;
+            Timestamp lastModifiedDate = null;
+            for (CustomerRepository.CustomerStamp stamp : stamps) {
+                count += stamp.getCount() == null ? 0 : stamp.getCount();
+                versions += stamp.getVersions() == null ? 0 : stamp.getVersions();
+                if (stamp.getLastModifiedDate() != null
+                        && (lastModifiedDate == null || stamp.getLastModifiedDate().after(lastModifiedDate)))
+                    lastModifiedDate = stamp.getLastModifiedDate();
+            }
+            return new Stamp(count, lastModifiedDate, versions);
+        }
+    }
+}
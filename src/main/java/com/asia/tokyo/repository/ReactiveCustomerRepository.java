@@ -0,0 +1,25 @@
+package com.asia.tokyo.repository;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.UUID;
+
+@Profile("reactive")
+public interface ReactiveCustomerRepository extends ReactiveMongoRepository<CustomerDto, UUID> {
+
+    int STREAM_BATCH_SIZE = 500;
+
+    Flux<CustomerDto> findAllByCustomerNameRegex(String regex);
+
+    /**
+     * The driver fetches the next batch only once the subscriber asked for it.
+     */
+    @Meta(cursorBatchSize = STREAM_BATCH_SIZE)
+    @Query("{}")
+    Flux<CustomerDto> streamAll();
+}
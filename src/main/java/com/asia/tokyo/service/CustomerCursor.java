@@ -0,0 +1,59 @@
+package com.asia.tokyo.service;
+
+import com.asia.tokyo.exception.CustomerException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last customer of a keyset page, on the (createdDate, id) ordering.
+ * It travels to the client as an opaque url-safe token.
+ */
+final class CustomerCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private final Sort.Direction direction;
+    private final Timestamp createdDate;
+    private final UUID id;
+
+    CustomerCursor(Sort.Direction direction, Timestamp createdDate, UUID id) {
+        this.direction = direction;
+        this.createdDate = createdDate;
+        this.id = id;
+    }
+
+    Sort.Direction getDirection() {
+        return direction;
+    }
+
+    Timestamp getCreatedDate() {
+        return createdDate;
+    }
+
+    UUID getId() {
+        return id;
+    }
+
+    String encode() {
+        String raw = direction.name() + SEPARATOR + createdDate.getTime() + SEPARATOR + createdDate.getNanos() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CustomerCursor decode(String token) throws CustomerException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR);
+            if (parts.length != 4)
+                throw new CustomerException("This cursor is not valid.");
+            Timestamp createdDate = new Timestamp(Long.parseLong(parts[1]));
+            createdDate.setNanos(Integer.parseInt(parts[2]));
+            return new CustomerCursor(Sort.Direction.valueOf(parts[0]), createdDate, UUID.fromString(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new CustomerException("This cursor is not valid.");
+        }
+    }
+}
@@ -1,22 +1,65 @@
 package com.asia.tokyo.service;
 
+import com.asia.tokyo.controller.model.CustomerBulkDeleteResult;
+import com.asia.tokyo.controller.model.CustomerBulkResult;
 import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerLookupResult;
+import com.asia.tokyo.controller.model.CustomerPagedList;
+import com.asia.tokyo.controller.model.CustomerSnapshot;
+import com.asia.tokyo.controller.model.CustomerTableOccupancy;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface CustomerService {
 
     CustomerDto addCustomer(CustomerDto customerDto);
 
+    CompletableFuture<CustomerDto> addCustomerAsync(CustomerDto customerDto);
+
+    CustomerBulkResult addCustomers(Iterator<CustomerDto> customerDtos);
+
     CustomerDto findCustomerById(UUID uuid);
 
+    CustomerLookupResult findCustomersByIds(Collection<UUID> uuids);
+
     CustomerDto updateCustomer(CustomerDto customerDto);
 
+    CustomerDto updateCustomer(UUID uuid, long expectedVersion, CustomerDto customerDto);
+
+    CustomerDto patchCustomer(UUID uuid, long expectedVersion, CustomerDto changes);
+
     void deleteCustomer(UUID uuid);
 
+    void deleteCustomer(UUID uuid, long expectedVersion);
+
+    CustomerBulkDeleteResult deleteCustomers(Collection<UUID> uuids);
+
     List<CustomerDto> findAllByCustomerNameLike(String customerName);
 
+    List<CustomerDto> findAllByCustomerNameLike(String customerName, Integer limit);
+
     Set<CustomerDto> findAll();
+
+    String versionOfAll();
+
+    /**
+     * The version of all the customers and, unless it is known to the caller, the customers,
+     * read in one transaction, so from one database.
+     */
+    CustomerSnapshot findAllWithVersion(Predicate<String> known);
+
+    List<CustomerTableOccupancy> findTableOccupancy();
+
+    void rebuildTableOccupancy();
+
+    CustomerPagedList findPage(String cursor, Integer size, String sort);
+
+    void exportAll(Consumer<CustomerDto> consumer);
 }
@@ -1,74 +1,524 @@
 package com.asia.tokyo.service;
 
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.config.datasource.DataSourceRoute;
+import com.asia.tokyo.config.datasource.DataSourceShard;
 import com.asia.tokyo.controller.mapper.CustomerMapper;
+import com.asia.tokyo.controller.model.CustomerBulkDeleteResult;
+import com.asia.tokyo.controller.model.CustomerBulkFailure;
+import com.asia.tokyo.controller.model.CustomerBulkResult;
 import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerLookupResult;
+import com.asia.tokyo.controller.model.CustomerPagedList;
+import com.asia.tokyo.controller.model.CustomerSnapshot;
+import com.asia.tokyo.controller.model.CustomerTableOccupancy;
 import com.asia.tokyo.domain.Customer;
 import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import com.asia.tokyo.exception.CustomerVersionConflictException;
 import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.repository.CustomerShardRouter;
+import com.asia.tokyo.service.cache.CustomerCache;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import com.asia.tokyo.service.occupancy.TableOccupancy;
+import com.asia.tokyo.service.projection.CustomerReadModel;
+import com.asia.tokyo.service.search.CustomerNameIndex;
+import com.asia.tokyo.service.writebehind.CustomerWriteBehind;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+@Profile("!reactive")
 @Service
 public class CustomerServiceImpl implements CustomerService {
 
+    /** Per method latency, tagged class and method by the TimedAspect. */
+    static final String TIMER = "tokyo.customer.service";
+
     private final CustomerRepository customerRepository;
     private final CustomerMapper customerMapper;
+    private final CustomerProperties customerProperties;
+    private final EntityManager entityManager;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CustomerNameIndex customerNameIndex;
+    private final CustomerCache customerCache;
+    private final TableOccupancy tableOccupancy;
+    private final CustomerWriteBehind customerWriteBehind;
+    private final ObjectProvider<CustomerReadModel> customerReadModel;
+    private final ObjectProvider<CustomerShardRouter> customerShardRouter;
 
-    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper) {
+    public CustomerServiceImpl(CustomerRepository customerRepository, CustomerMapper customerMapper,
+                               CustomerProperties customerProperties, EntityManager entityManager,
+                               Validator validator, PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry, ApplicationEventPublisher eventPublisher,
+                               CustomerNameIndex customerNameIndex, CustomerCache customerCache,
+                               TableOccupancy tableOccupancy, CustomerWriteBehind customerWriteBehind,
+                               ObjectProvider<CustomerReadModel> customerReadModel,
+                               ObjectProvider<CustomerShardRouter> customerShardRouter) {
+        if(customerProperties.getProjection().isServeReads() && !customerProperties.getProjection().isEnabled())
+            throw new IllegalStateException("tokyo.customer.projection.serve-reads needs tokyo.customer.projection.enabled");
         this.customerRepository = customerRepository;
         this.customerMapper = customerMapper;
+        this.customerProperties = customerProperties;
+        this.entityManager = entityManager;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        this.customerNameIndex = customerNameIndex;
+        this.customerCache = customerCache;
+        this.tableOccupancy = tableOccupancy;
+        this.customerWriteBehind = customerWriteBehind;
+        this.customerReadModel = customerReadModel;
+        this.customerShardRouter = customerShardRouter;
     }
 
     @Override
+    @Timed(TIMER)
+    @Transactional
     public CustomerDto addCustomer(CustomerDto customerDto) throws CustomerException {
         if(customerDto == null)
             throw new CustomerException("The customer informations were not provided.");
-        Customer customer = customerMapper.customerDtoToCustomer(customerDto);
-        return customerMapper.customerToCustomerDto(customerRepository.save(customer));
+        long start = System.nanoTime();
+        Customer customer = customerRepository.save(customerMapper.customerDtoToCustomer(customerDto));
+        recordInserts("single", 1, System.nanoTime() - start);
+        eventPublisher.publishEvent(CustomerChangedEvent.created(customer));
+        return customerMapper.customerToCustomerDto(customer);
+    }
+
+    /**
+     * The creation is committed with the others queued at the same time, the future completes once
+     * the customer is committed. Without tokyo.customer.write-behind.enabled it is refused as
+     * unavailable: the caller picks {@link #addCustomer(CustomerDto)} instead.
+     */
+    @Override
+    @Timed(TIMER)
+    public CompletableFuture<CustomerDto> addCustomerAsync(CustomerDto customerDto) throws CustomerException {
+        if(customerDto == null)
+            throw new CustomerException("The customer informations were not provided.");
+        long start = System.nanoTime();
+        return customerWriteBehind.submit(customerMapper.customerDtoToCustomer(customerDto))
+                .thenApply(customer -> {
+                    recordInserts("write-behind", 1, System.nanoTime() - start);
+                    return customerMapper.customerToCustomerDto(customer);
+                });
     }
 
     @Override
+    @Timed(TIMER)
+    public CustomerBulkResult addCustomers(Iterator<CustomerDto> customerDtos) throws CustomerException {
+        if(customerDtos == null)
+            throw new CustomerException("The customer informations were not provided.");
+        long start = System.nanoTime();
+        int chunkSize = customerProperties.getBulk().getChunkSize();
+        List<CustomerBulkFailure> failures = new ArrayList<>();
+        List<Customer> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkIndexes = new ArrayList<>(chunkSize);
+        long received = 0;
+        long created = 0;
+
+        while (customerDtos.hasNext()) {
+            CustomerDto customerDto = customerDtos.next();
+            long index = received++;
+            List<String> errors = validate(customerDto);
+            if(!errors.isEmpty()) {
+                failures.add(CustomerBulkFailure.builder().index(index).errors(errors).build());
+                continue;
+            }
+            chunk.add(customerMapper.customerDtoToCustomer(customerDto));
+            chunkIndexes.add(index);
+            if(chunk.size() == chunkSize) {
+                created += insertChunk(chunk, chunkIndexes, failures);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        if(!chunk.isEmpty())
+            created += insertChunk(chunk, chunkIndexes, failures);
+
+        long elapsed = System.nanoTime() - start;
+        recordInserts("bulk", created, elapsed);
+        return CustomerBulkResult.builder()
+                .received(received)
+                .created(created)
+                .failed(failures.size())
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsed))
+                .rowsPerSecond(elapsed == 0 ? 0 : created * 1e9 / elapsed)
+                .failures(failures)
+                .build();
+    }
+
+    private List<String> validate(CustomerDto customerDto) {
+        if(customerDto == null)
+            return Collections.singletonList("The customer informations were not provided.");
+        Set<ConstraintViolation<CustomerDto>> violations = validator.validate(customerDto);
+        List<String> errors = new ArrayList<>(violations.size());
+        violations.forEach(violation -> errors.add(violation.getPropertyPath() + " : " + violation.getMessage()));
+        return errors;
+    }
+
+    /**
+     * Inserts a chunk with one transaction per shard, which Hibernate sends as JDBC batches.
+     * When a shard refuses its part, only that part is retried one by one to find the faulty customers.
+     */
+    private int insertChunk(List<Customer> chunk, List<Long> chunkIndexes, List<CustomerBulkFailure> failures) {
+        List<Integer> positions = IntStream.range(0, chunk.size()).boxed().collect(Collectors.toList());
+        int created = 0;
+        for (Map.Entry<Integer, List<Integer>> part : byShard(positions, chunk::get).entrySet())
+            created += DataSourceShard.callOnShard(part.getKey(), () -> insertPart(chunk, part.getValue(), chunkIndexes, failures));
+        return created;
+    }
+
+    private int insertPart(List<Customer> chunk, List<Integer> positions, List<Long> chunkIndexes, List<CustomerBulkFailure> failures) {
+        List<Customer> customers = new ArrayList<>(positions.size());
+        positions.forEach(position -> customers.add(chunk.get(position)));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                customerRepository.saveAll(customers);
+                entityManager.flush();
+                entityManager.clear();
+                customers.forEach(customer -> eventPublisher.publishEvent(CustomerChangedEvent.created(customer)));
+            });
+            return customers.size();
+        } catch (DataAccessException | PersistenceException e) {
+            int created = 0;
+            for (int position : positions) {
+                Customer customer = chunk.get(position);
+                // Rolled back, so new again; it keeps its id, and with it its shard.
+                customer.setVersion(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        customerRepository.save(customer);
+                        eventPublisher.publishEvent(CustomerChangedEvent.created(customer));
+                    });
+                    created++;
+                } catch (DataAccessException | PersistenceException ex) {
+                    failures.add(CustomerBulkFailure.builder().index(chunkIndexes.get(position))
+                            .errors(Collections.singletonList(NestedExceptionUtils.getMostSpecificCause(ex).getMessage())).build());
+                }
+            }
+            return created;
+        }
+    }
+
+    /**
+     * The customers of a shard are written in a transaction of their own, on that shard: a transaction
+     * cannot span shards. Without sharding they are all together, under a null shard.
+     */
+    private <T> Map<Integer, List<T>> byShard(List<T> items, Function<T, Customer> customerOf) {
+        CustomerShardRouter router = customerShardRouter.getIfAvailable();
+        return router == null ? Collections.singletonMap(null, items) : router.byShard(items, customerOf);
+    }
+
+    private Map<Integer, List<UUID>> idsByShard(List<UUID> ids) {
+        CustomerShardRouter router = customerShardRouter.getIfAvailable();
+        return router == null ? Collections.singletonMap(null, ids) : router.idsByShard(ids);
+    }
+
+    private void recordInserts(String mode, long rows, long elapsedNanos) {
+        Timer.builder("tokyo.customer.insert").tag("mode", mode)
+                .description("Time spent inserting customers, per call")
+                .register(meterRegistry).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("tokyo.customer.inserted", "mode", mode).increment(rows);
+    }
+
+    @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
     public CustomerDto findCustomerById(UUID uuid) throws CustomerException {
         if(uuid == null)
             throw new CustomerException("This UUID is not valid.");
-        Customer result = customerRepository.findById(uuid).orElse(null);
+        // The cached customer is served to everyone: it is loaded from the primary, never from a lagging replica.
+        CustomerDto result = customerCache.get(uuid, id -> DataSourceRoute.callOnPrimary(
+                () -> customerRepository.findById(id).map(customerMapper::customerToCustomerDto).orElse(null)));
         if(result == null)
             throw new CustomerException("This UUID is unknow.");
-        return customerMapper.customerToCustomerDto(result);
+        return result;
+    }
+
+    /**
+     * Looks up the cache first, then reads the others with one SELECT ... IN (...) per chunk.
+     * The customers come in the order of the request, once each; unknown UUIDs are listed as missing.
+     */
+    @Override
+    @Timed(TIMER)
+    public CustomerLookupResult findCustomersByIds(Collection<UUID> uuids) {
+        if(uuids == null)
+            throw new CustomerException("The customer UUIDs were not provided.");
+        if(uuids.contains(null))
+            throw new CustomerException("This UUID is not valid.");
+        List<UUID> distinct = new ArrayList<>(new LinkedHashSet<>(uuids));
+        int maxLookupIds = customerProperties.getBulk().getMaxLookupIds();
+        if(distinct.size() > maxLookupIds)
+            throw new CustomerException("Too many UUIDs, at most " + maxLookupIds + " can be looked up at once.");
+        Map<UUID, CustomerDto> found = new HashMap<>(customerCache.getAllPresent(distinct));
+        List<UUID> toRead = new ArrayList<>(distinct.size() - found.size());
+        for (UUID uuid : distinct)
+            if (!found.containsKey(uuid))
+                toRead.add(uuid);
+        int chunkSize = customerProperties.getBulk().getChunkSize();
+        for (int from = 0; from < toRead.size(); from += chunkSize)
+            for (Customer customer : customerRepository.findAllById(toRead.subList(from, Math.min(from + chunkSize, toRead.size()))))
+                found.put(customer.getId(), customerMapper.customerToCustomerDto(customer));
+        List<CustomerDto> customers = new ArrayList<>(found.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : distinct) {
+            CustomerDto customerDto = found.get(uuid);
+            if (customerDto == null)
+                missing.add(uuid);
+            else
+                customers.add(customerDto);
+        }
+        return CustomerLookupResult.builder().customers(customers).missing(missing).build();
     }
 
     @Override
+    @Timed(TIMER)
+    @Transactional
     public CustomerDto updateCustomer(CustomerDto customerDto) {
         if(customerDto == null)
             throw new CustomerException("The customer informations were not provided.");
-        Customer customer = customerMapper.customerDtoToCustomer(customerDto);
-        return customerMapper.customerToCustomerDto(customerRepository.save(customer));
+        Customer customer = customerRepository.save(customerMapper.customerDtoToCustomer(customerDto));
+        // The new version is only known once flushed.
+        entityManager.flush();
+        eventPublisher.publishEvent(CustomerChangedEvent.updated(customer));
+        return customerMapper.customerToCustomerDto(customer);
+    }
+
+    /**
+     * Updates the customer only if it is still at the expected version. A write committed between
+     * the check and the commit is caught by the version column at flush.
+     */
+    @Override
+    @Timed(TIMER)
+    @Transactional
+    public CustomerDto updateCustomer(UUID uuid, long expectedVersion, CustomerDto customerDto) {
+        if(uuid == null)
+            throw new CustomerException("This UUID is not valid.");
+        if(customerDto == null)
+            throw new CustomerException("The customer informations were not provided.");
+        Customer customer = customerRepository.findById(uuid)
+                .orElseThrow(() -> new CustomerException("This UUID is unknow."));
+        if(customer.getVersion() == null || customer.getVersion() != expectedVersion)
+            throw new CustomerVersionConflictException("This customer is at version " + customer.getVersion()
+                    + ", not " + expectedVersion + ".");
+        customer.setCustomerName(customerDto.getCustomerName());
+        customer.setTableNumber(customerDto.getTableNumber());
+        entityManager.flush();
+        eventPublisher.publishEvent(CustomerChangedEvent.updated(customer));
+        return customerMapper.customerToCustomerDto(customer);
+    }
+
+    /**
+     * Changes only the non null name and table number, with a single UPDATE checking and incrementing
+     * the version. The customer is then read back, in the same transaction, to answer it whole: a partial
+     * body could not carry the strong ETag of that version.
+     */
+    @Override
+    @Timed(TIMER)
+    @Transactional
+    public CustomerDto patchCustomer(UUID uuid, long expectedVersion, CustomerDto changes) {
+        if(uuid == null)
+            throw new CustomerException("This UUID is not valid.");
+        if(changes == null || (changes.getCustomerName() == null && changes.getTableNumber() == null))
+            throw new CustomerException("The customer informations were not provided.");
+        List<String> errors = new ArrayList<>();
+        if(changes.getCustomerName() != null)
+            validator.validateProperty(changes, "customerName")
+                    .forEach(violation -> errors.add(violation.getPropertyPath() + " : " + violation.getMessage()));
+        if(changes.getTableNumber() != null)
+            validator.validateProperty(changes, "tableNumber")
+                    .forEach(violation -> errors.add(violation.getPropertyPath() + " : " + violation.getMessage()));
+        if(!errors.isEmpty())
+            throw new CustomerException(String.join(", ", errors));
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if(customerRepository.updatePartially(uuid, expectedVersion, changes.getCustomerName(), changes.getTableNumber(), now) == 0) {
+            if(!customerRepository.existsById(uuid))
+                throw new CustomerException("This UUID is unknow.");
+            throw new CustomerVersionConflictException("This customer is not at version " + expectedVersion + ".");
+        }
+        // Not loaded before the UPDATE in this transaction, so read as committed by it.
+        Customer patched = customerRepository.findById(uuid)
+                .orElseThrow(() -> new CustomerException("This UUID is unknow."));
+        eventPublisher.publishEvent(CustomerChangedEvent.updated(patched));
+        return customerMapper.customerToCustomerDto(patched);
     }
 
     @Override
+    @Timed(TIMER)
+    @Transactional
     public void deleteCustomer(UUID uuid) {
         if(uuid == null)
             throw new CustomerException("This UUID is not valid.");
-        if(!customerRepository.existsById(uuid))
+        if(customerRepository.deleteByIdReturningCount(uuid) == 0)
             throw new CustomerException("That UUID is unknown.");
-        customerRepository.deleteById(uuid);
+        recordDeletes("single", 1);
+        eventPublisher.publishEvent(CustomerChangedEvent.deleted(uuid));
+    }
+
+    /**
+     * Deletes the customer only if it is still at the expected version. The existence is only
+     * checked when nothing was deleted, to tell an unknown UUID from a version conflict.
+     */
+    @Override
+    @Timed(TIMER)
+    @Transactional
+    public void deleteCustomer(UUID uuid, long expectedVersion) {
+        if(uuid == null)
+            throw new CustomerException("This UUID is not valid.");
+        if(customerRepository.deleteByIdAndVersion(uuid, expectedVersion) == 0) {
+            if(!customerRepository.existsById(uuid))
+                throw new CustomerException("That UUID is unknown.");
+            throw new CustomerVersionConflictException("This customer is not at version " + expectedVersion + ".");
+        }
+        recordDeletes("single", 1);
+        eventPublisher.publishEvent(CustomerChangedEvent.deleted(uuid));
     }
 
+    /**
+     * Deletes with one DELETE ... IN (...) statement per chunk and shard, each in its own transaction.
+     * Unknown UUIDs are counted as missing, not reported as errors.
+     */
     @Override
+    @Timed(TIMER)
+    public CustomerBulkDeleteResult deleteCustomers(Collection<UUID> uuids) {
+        if(uuids == null)
+            throw new CustomerException("The customer UUIDs were not provided.");
+        if(uuids.contains(null))
+            throw new CustomerException("This UUID is not valid.");
+        long start = System.nanoTime();
+        List<UUID> distinct = new ArrayList<>(new LinkedHashSet<>(uuids));
+        int chunkSize = customerProperties.getBulk().getChunkSize();
+        long deleted = 0;
+        for (int from = 0; from < distinct.size(); from += chunkSize) {
+            List<UUID> chunk = distinct.subList(from, Math.min(from + chunkSize, distinct.size()));
+            for (Map.Entry<Integer, List<UUID>> part : idsByShard(chunk).entrySet())
+                deleted += DataSourceShard.callOnShard(part.getKey(), () -> deletePart(part.getValue()));
+        }
+        recordDeletes("bulk", deleted);
+        return CustomerBulkDeleteResult.builder()
+                .received(uuids.size())
+                .deleted(deleted)
+                .missing(distinct.size() - deleted)
+                .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                .build();
+    }
+
+    /**
+     * The lock, the delete and the announces share the transaction, on the shard of the ids.
+     */
+    private int deletePart(List<UUID> ids) {
+        return transactionTemplate.execute(status -> {
+            // Only the customers actually deleted are announced: the unknown ids change nothing.
+            List<UUID> present = customerRepository.lockIdsByIdIn(ids);
+            if (present.isEmpty())
+                return 0;
+            int count = customerRepository.deleteByIdIn(present);
+            present.forEach(uuid -> eventPublisher.publishEvent(CustomerChangedEvent.deleted(uuid)));
+            return count;
+        });
+    }
+
+    private void recordDeletes(String mode, long rows) {
+        meterRegistry.counter("tokyo.customer.deleted", "mode", mode).increment(rows);
+    }
+
+    @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
     public List<CustomerDto> findAllByCustomerNameLike(String customerName) {
+        return findAllByCustomerNameLike(customerName, null);
+    }
+
+    @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
+    public List<CustomerDto> findAllByCustomerNameLike(String customerName, Integer limit) {
         if(customerName == null)
             throw new CustomerException("The customer name was not provided.");
-        List<Customer> result = customerRepository.findAllByCustomerNameLike(customerName);
+        if(limit != null && limit < 1)
+            throw new CustomerException("The limit must be positive.");
+        if(customerProperties.getProjection().isServeReads())
+            return customerReadModel.getObject().findAllByCustomerNameLike(customerName, limit);
+        CustomerProperties.Search search = customerProperties.getSearch();
+        Optional<Set<UUID>> candidates = search.isIndexEnabled()
+                ? customerNameIndex.candidates(customerName, search.getMaxCandidates()) : Optional.empty();
+        List<Customer> result;
+        if(candidates.isPresent())
+            result = findCandidatesByCustomerNameLike(new ArrayList<>(candidates.get()), customerName, limit);
+        else if(limit == null)
+            result = customerRepository.findAllByCustomerNameLike(customerName);
+        else
+            result = customerRepository.findAllByCustomerNameLike(customerName, PageRequest.of(0, limit));
         //return result.stream().map( c -> customerMapper.customerToCustomerDto(c)).collect(Collectors.toList());
         return customerMapper.customersToCustomerDtosList(result);
     }
 
+    /**
+     * The index candidates are a superset of the matches: the LIKE is still run on them,
+     * so the database collation decides, but only over these ids.
+     */
+    private List<Customer> findCandidatesByCustomerNameLike(List<UUID> ids, String customerName, Integer limit) {
+        List<Customer> result = new ArrayList<>();
+        int chunkSize = customerProperties.getSearch().getChunkSize();
+        for (int from = 0; from < ids.size() && (limit == null || result.size() < limit); from += chunkSize) {
+            List<UUID> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+            int remaining = limit == null ? chunk.size() : Math.min(chunk.size(), limit - result.size());
+            result.addAll(customerRepository.findAllByIdInAndCustomerNameLike(chunk, customerName, PageRequest.of(0, remaining)));
+        }
+        return result;
+    }
+
     @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
     public Set<CustomerDto> findAll() {
+        if(customerProperties.getProjection().isServeReads())
+            return customerReadModel.getObject().findAll();
+        return findAllInDatabase();
+    }
+
+    private Set<CustomerDto> findAllInDatabase() {
         HashSet<Customer> set = new HashSet<Customer>();
         Iterable<Customer> it = customerRepository.findAll();
         for (Customer customer: it)
@@ -76,4 +526,86 @@ public class CustomerServiceImpl implements CustomerService {
         //return set.stream().map( c -> customerMapper.customerToCustomerDto(c)).collect(Collectors.toSet());
         return customerMapper.customersToCustomerDtosSet(set);
     }
+
+    @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
+    public CustomerSnapshot findAllWithVersion(Predicate<String> known) {
+        String version = versionOfAll();
+        return new CustomerSnapshot(version, known.test(version) ? null : findAllInDatabase());
+    }
+
+    @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
+    public String versionOfAll() {
+        CustomerRepository.CustomerStamp stamp = customerRepository.findStamp();
+        Timestamp lastModifiedDate = stamp.getLastModifiedDate();
+        String lastModified = lastModifiedDate == null ? "0" : lastModifiedDate.getTime() + "." + lastModifiedDate.getNanos();
+        long versions = stamp.getVersions() == null ? 0 : stamp.getVersions();
+        return stamp.getCount() + "-" + lastModified + "-" + versions;
+    }
+
+    @Override
+    @Timed(TIMER)
+    public List<CustomerTableOccupancy> findTableOccupancy() {
+        if(!tableOccupancy.isReady())
+            throw new CustomerUnavailableException("The table occupancy is not built yet.");
+        return tableOccupancy.snapshot();
+    }
+
+    @Override
+    @Timed(TIMER)
+    public void rebuildTableOccupancy() {
+        tableOccupancy.rebuildInBackground();
+    }
+
+    @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
+    public CustomerPagedList findPage(String cursor, Integer size, String sort) throws CustomerException {
+        int pageSize = size == null ? customerProperties.getPage().getDefaultSize() : size;
+        if(pageSize < 1 || pageSize > customerProperties.getPage().getMaxSize())
+            throw new CustomerException("The page size must be between 1 and " + customerProperties.getPage().getMaxSize() + ".");
+        Sort.Direction direction = sort == null ? Sort.Direction.ASC : Sort.Direction.fromOptionalString(sort)
+                .orElseThrow(() -> new CustomerException("The sort must be asc or desc."));
+
+        // One extra row tells whether a next page exists without counting the table.
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<Customer> rows;
+        if(cursor == null || cursor.isEmpty()) {
+            rows = direction.isAscending() ? customerRepository.findFirstPageAsc(limit)
+                    : customerRepository.findFirstPageDesc(limit);
+        } else {
+            CustomerCursor after = CustomerCursor.decode(cursor);
+            if(sort != null && after.getDirection() != direction)
+                throw new CustomerException("The sort does not match the cursor.");
+            direction = after.getDirection();
+            rows = direction.isAscending()
+                    ? customerRepository.findPageAfterAsc(after.getCreatedDate(), after.getId(), limit)
+                    : customerRepository.findPageAfterDesc(after.getCreatedDate(), after.getId(), limit);
+        }
+
+        String nextCursor = null;
+        if(rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Customer last = rows.get(pageSize - 1);
+            nextCursor = new CustomerCursor(direction, last.getCreatedDate(), last.getId()).encode();
+        }
+        return new CustomerPagedList(customerMapper.customersToCustomerDtosList(rows),
+                PageRequest.of(0, pageSize, direction, "createdDate", "id"), nextCursor);
+    }
+
+    @Override
+    @Timed(TIMER)
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<CustomerDto> consumer) {
+        try (Stream<Customer> customers = customerRepository.streamAll()) {
+            customers.forEach(customer -> {
+                consumer.accept(customerMapper.customerToCustomerDto(customer));
+                // Keeps the persistence context from growing with the table.
+                entityManager.detach(customer);
+            });
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package com.asia.tokyo.service;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+public interface ReactiveCustomerService {
+
+    Mono<CustomerDto> addCustomer(CustomerDto customerDto);
+
+    Mono<CustomerDto> findCustomerById(UUID uuid);
+
+    Mono<CustomerDto> updateCustomer(CustomerDto customerDto);
+
+    Mono<Void> deleteCustomer(UUID uuid);
+
+    Flux<CustomerDto> findAllByCustomerNameLike(String customerName, Integer limit);
+
+    Flux<CustomerDto> findAll();
+}
@@ -0,0 +1,101 @@
+package com.asia.tokyo.service;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator;
+import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.repository.ReactiveCustomerRepository;
+import com.asia.tokyo.service.search.LikePatterns;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Same contract as {@link CustomerServiceImpl}, on the Mongo customer collection and without blocking.
+ */
+@Profile("reactive")
+@Service
+public class ReactiveCustomerServiceImpl implements ReactiveCustomerService {
+
+    private final ReactiveCustomerRepository reactiveCustomerRepository;
+
+    public ReactiveCustomerServiceImpl(ReactiveCustomerRepository reactiveCustomerRepository) {
+        this.reactiveCustomerRepository = reactiveCustomerRepository;
+    }
+
+    @Override
+    public Mono<CustomerDto> addCustomer(CustomerDto customerDto) {
+        if(customerDto == null)
+            return Mono.error(new CustomerException("The customer informations were not provided."));
+        return reactiveCustomerRepository.insert(stamp(customerDto));
+    }
+
+    @Override
+    public Mono<CustomerDto> findCustomerById(UUID uuid) {
+        if(uuid == null)
+            return Mono.error(new CustomerException("This UUID is not valid."));
+        return reactiveCustomerRepository.findById(uuid)
+                .switchIfEmpty(Mono.error(() -> new CustomerException("This UUID is unknow.")));
+    }
+
+    /**
+     * Changes the name and table number of the stored customer, which keeps its id and creation date.
+     */
+    @Override
+    public Mono<CustomerDto> updateCustomer(CustomerDto customerDto) {
+        if(customerDto == null)
+            return Mono.error(new CustomerException("The customer informations were not provided."));
+        if(customerDto.getId() == null)
+            return Mono.error(new CustomerException("This UUID is not valid."));
+        return reactiveCustomerRepository.findById(customerDto.getId())
+                .switchIfEmpty(Mono.error(() -> new CustomerException("This UUID is unknow.")))
+                .flatMap(stored -> {
+                    stored.setCustomerName(customerDto.getCustomerName());
+                    stored.setTableNumber(customerDto.getTableNumber());
+                    return reactiveCustomerRepository.save(stamp(stored));
+                });
+    }
+
+    @Override
+    public Mono<Void> deleteCustomer(UUID uuid) {
+        if(uuid == null)
+            return Mono.error(new CustomerException("This UUID is not valid."));
+        return reactiveCustomerRepository.existsById(uuid)
+                .flatMap(exists -> exists ? reactiveCustomerRepository.deleteById(uuid)
+                        : Mono.error(new CustomerException("That UUID is unknown.")));
+    }
+
+    @Override
+    public Flux<CustomerDto> findAllByCustomerNameLike(String customerName, Integer limit) {
+        if(customerName == null)
+            return Flux.error(new CustomerException("The customer name was not provided."));
+        if(limit != null && limit < 1)
+            return Flux.error(new CustomerException("The limit must be positive."));
+        Flux<CustomerDto> result = reactiveCustomerRepository.findAllByCustomerNameRegex(LikePatterns.toRegex(customerName));
+        return limit == null ? result : result.take(limit);
+    }
+
+    @Override
+    public Flux<CustomerDto> findAll() {
+        return reactiveCustomerRepository.streamAll();
+    }
+
+    /**
+     * Fills what JPA generates on the servlet side. Dates follow DateMapper: JVM wall-clock time presented as UTC.
+     */
+    private static CustomerDto stamp(CustomerDto customerDto) {
+        OffsetDateTime now = OffsetDateTime.of(LocalDateTime.now(), ZoneOffset.UTC);
+        if(customerDto.getId() == null)
+            customerDto.setId(TimeOrderedUUIDGenerator.next());
+        if(customerDto.getCreatedDate() == null)
+            customerDto.setCreatedDate(now);
+        customerDto.setVersion(customerDto.getVersion() == null ? 0 : customerDto.getVersion() + 1);
+        customerDto.setLastModifiedDate(now);
+        return customerDto;
+    }
+}
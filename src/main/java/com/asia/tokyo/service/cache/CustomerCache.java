@@ -0,0 +1,74 @@
+package com.asia.tokyo.service.cache;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of the customers looked up by id, bounded in size and age (W-TinyLFU eviction).
+ * <p>
+ * An entry leaves the cache as soon as a committed write carries a newer version, or deletes it.
+ * A load running while the write commits holds the entry, so the invalidation waits for it and
+ * still compares its version. The cached instances are shared: callers must not modify them.
+ * <p>
+ * Only the writes of this instance invalidate it: a customer written through another instance stays
+ * cached here at its older version until the entry expires, after tokyo.customer.cache.expire-after-write.
+ */
+@Profile("!reactive")
+@Component
+public class CustomerCache {
+
+    public static final String NAME = "customers";
+
+    private final Cache<UUID, CustomerDto> cache;
+
+    public CustomerCache(CustomerProperties customerProperties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(customerProperties.getCache().getMaximumSize())
+                .expireAfterWrite(customerProperties.getCache().getExpireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+    }
+
+    /**
+     * @param loader gives null for an unknown id, which is then not cached
+     */
+    public CustomerDto get(UUID id, Function<UUID, CustomerDto> loader) {
+        return cache.get(id, loader);
+    }
+
+    /**
+     * The customers of these ids already cached. Nothing is loaded: a bulk load could not be
+     * compared with a write committing meanwhile as {@link #get} does.
+     */
+    public Map<UUID, CustomerDto> getAllPresent(Collection<UUID> ids) {
+        return cache.getAllPresent(ids);
+    }
+
+    public void invalidate(UUID id) {
+        cache.invalidate(id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.getType() == CustomerChangedEvent.Type.DELETED || event.getVersion() == null) {
+            cache.invalidate(event.getId());
+            return;
+        }
+        cache.asMap().computeIfPresent(event.getId(),
+                (id, cached) -> cached.getVersion() != null && cached.getVersion() >= event.getVersion() ? cached : null);
+    }
+}
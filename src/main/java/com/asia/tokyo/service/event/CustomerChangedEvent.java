@@ -0,0 +1,52 @@
+package com.asia.tokyo.service.event;
+
+import com.asia.tokyo.domain.Customer;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Published by the customer service for every write. Listeners registered with
+ * {@code @TransactionalEventListener} only see it once the write is committed.
+ * A null field means the write did not say anything about it.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CustomerChangedEvent {
+
+    public enum Type {CREATED, UPDATED, DELETED}
+
+    private final Type type;
+
+    private final UUID id;
+
+    private final Long version;
+
+    private final String customerName;
+
+    private final String tableNumber;
+
+    private final Timestamp lastModifiedDate;
+
+    public static CustomerChangedEvent created(Customer customer) {
+        return of(Type.CREATED, customer);
+    }
+
+    public static CustomerChangedEvent updated(Customer customer) {
+        return of(Type.UPDATED, customer);
+    }
+
+    public static CustomerChangedEvent deleted(UUID id) {
+        return new CustomerChangedEvent(Type.DELETED, id, null, null, null, null);
+    }
+
+    private static CustomerChangedEvent of(Type type, Customer customer) {
+        return new CustomerChangedEvent(type, customer.getId(), customer.getVersion(), customer.getCustomerName(), customer.getTableNumber(),
+                customer.getLastModifiedDate());
+    }
+}
@@ -0,0 +1,201 @@
+package com.asia.tokyo.service.occupancy;
+
+import com.asia.tokyo.config.datasource.DataSourceRoute;
+import com.asia.tokyo.controller.mapper.DateMapper;
+import com.asia.tokyo.controller.model.CustomerTableOccupancy;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Number of customers seated at each table, with the time of the most recent write seen at that table
+ * (a customer seated, changed, moved or gone). Built in the background once the application is ready,
+ * then kept up to date by the committed writes: each one moves at most two counters, so reading the
+ * whole view costs one pass over the tables, already sorted by table number.
+ * Until the first build is done it is not ready.
+ * <p>
+ * The version applied last is kept per customer, and a write or a loaded row at an older version is
+ * ignored: the writes may be seen out of order, and the build may read a row older than a write already
+ * followed. The deleted customers are remembered until the next build, so that a late write cannot seat them again.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class TableOccupancy {
+
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final DateMapper dateMapper;
+
+    private volatile Tables current;
+    private volatile Tables building;
+
+    public TableOccupancy(CustomerRepository customerRepository, PlatformTransactionManager transactionManager,
+                          TaskExecutor taskExecutor, DateMapper dateMapper) {
+        this.customerRepository = customerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.dateMapper = dateMapper;
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    /**
+     * @return the occupied tables sorted by table number, empty when not ready
+     */
+    public List<CustomerTableOccupancy> snapshot() {
+        Tables tables = current;
+        List<CustomerTableOccupancy> result = new ArrayList<>();
+        if (tables == null)
+            return result;
+        tables.tables.forEach((tableNumber, table) -> {
+            long customers = table.customers.sum();
+            if (customers > 0)
+                result.add(CustomerTableOccupancy.builder()
+                        .tableNumber(tableNumber)
+                        .customers(customers)
+                        .lastModifiedDate(dateMapper.asOffsetDateTime(new Timestamp(table.lastModifiedMillis.get())))
+                        .build());
+        });
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        long when = event.getLastModifiedDate() == null ? System.currentTimeMillis() : event.getLastModifiedDate().getTime();
+        for (Tables tables : new Tables[]{current, building}) {
+            if (tables == null)
+                continue;
+            if (event.getType() == CustomerChangedEvent.Type.DELETED)
+                tables.remove(event.getId(), when);
+            else
+                tables.seat(event.getId(), event.getTableNumber(), event.getVersion(), when);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuildInBackground();
+    }
+
+    /**
+     * The current view keeps being served, and followed, until the new one is loaded.
+     */
+    public void rebuildInBackground() {
+        taskExecutor.execute(this::rebuild);
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Tables next = new Tables();
+        building = next;
+        try {
+            // From the primary: a replica may lag behind the changes already followed.
+            DataSourceRoute.runOnPrimary(() -> transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<CustomerRepository.CustomerSeat> seats = customerRepository.streamAllCustomerSeats()) {
+                    seats.forEach(seat -> next.seat(seat.getId(), seat.getTableNumber(), seat.getVersion(),
+                            seat.getLastModifiedDate() == null ? 0 : seat.getLastModifiedDate().getTime()));
+                }
+            }));
+            current = next;
+            log.info("Table occupancy built with {} customers at {} tables in {} ms",
+                    next.tables.values().stream().mapToLong(table -> table.customers.sum()).sum(), next.tables.size(),
+                    System.currentTimeMillis() - start);
+        } finally {
+            building = null;
+        }
+    }
+
+    private static class Table {
+        private final LongAdder customers = new LongAdder();
+        private final AtomicLong lastModifiedMillis = new AtomicLong();
+
+        void touch(long millis) {
+            lastModifiedMillis.accumulateAndGet(millis, Math::max);
+        }
+    }
+
+    private static class Seat {
+        private final String tableNumber;
+        private final Long version;
+
+        Seat(String tableNumber, Long version) {
+            this.tableNumber = tableNumber;
+            this.version = version;
+        }
+    }
+
+    private static class Tables {
+        private static final Seat DELETED = new Seat(null, null);
+
+        private final Map<UUID, Seat> seats = new ConcurrentHashMap<>();
+        private final Map<String, Table> tables = new ConcurrentSkipListMap<>();
+
+        /**
+         * A null table number keeps the customer where it is seated; a null version is always applied.
+         */
+        void seat(UUID id, String tableNumber, Long version, long millis) {
+            // compute() serializes the writes of one id, counters included.
+            seats.compute(id, (key, previous) -> {
+                if (previous == DELETED || (previous != null && isOlder(version, previous.version)))
+                    return previous;
+                String seated = previous == null ? null : previous.tableNumber;
+                String next = tableNumber == null ? seated : tableNumber;
+                if (next != null) {
+                    if (!next.equals(seated)) {
+                        if (seated != null)
+                            leave(seated, millis);
+                        table(next).customers.increment();
+                    }
+                    table(next).touch(millis);
+                }
+                return new Seat(next, version == null && previous != null ? previous.version : version);
+            });
+        }
+
+        void remove(UUID id, long millis) {
+            seats.compute(id, (key, previous) -> {
+                if (previous != null && previous.tableNumber != null)
+                    leave(previous.tableNumber, millis);
+                return DELETED;
+            });
+        }
+
+        private static boolean isOlder(Long version, Long applied) {
+            return version != null && applied != null && version <= applied;
+        }
+
+        private void leave(String tableNumber, long millis) {
+            Table table = table(tableNumber);
+            table.customers.decrement();
+            table.touch(millis);
+        }
+
+        private Table table(String tableNumber) {
+            return tables.computeIfAbsent(tableNumber, key -> new Table());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.asia.tokyo.service.projection;
+
+import com.asia.tokyo.domain.CustomerOutbox;
+import com.asia.tokyo.repository.CustomerOutboxRepository;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Records each customer write in the outbox, within the transaction of the write:
+ * the write and its outbox entry are committed or rolled back together.
+ */
+@Profile("!reactive")
+@Component
+@ConditionalOnProperty(prefix = "tokyo.customer.projection", name = "enabled", havingValue = "true")
+public class CustomerOutboxRecorder {
+
+    private final CustomerOutboxRepository customerOutboxRepository;
+
+    public CustomerOutboxRecorder(CustomerOutboxRepository customerOutboxRepository) {
+        this.customerOutboxRepository = customerOutboxRepository;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        customerOutboxRepository.save(CustomerOutbox.builder()
+                .customerId(event.getId())
+                .type(event.getType().name())
+                .build());
+    }
+}
@@ -0,0 +1,179 @@
+package com.asia.tokyo.service.projection;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.config.datasource.DataSourceRoute;
+import com.asia.tokyo.config.datasource.DataSourceShard;
+import com.asia.tokyo.config.datasource.ShardRoutingDataSource;
+import com.asia.tokyo.controller.mapper.CustomerMapper;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.domain.CustomerOutbox;
+import com.asia.tokyo.repository.CustomerOutboxRepository;
+import com.asia.tokyo.repository.CustomerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Applies the outbox to the MongoDB read model, oldest entries first, from one background thread.
+ * An entry only names a customer: its current state is read from the database and upserted,
+ * or removed when the customer is gone. Applying an entry twice is harmless, and a write committed
+ * meanwhile has its own entry, so both stores converge once the outbox is empty. A document is only
+ * replaced by a newer version: a projector still running elsewhere with an older read cannot roll it back.
+ * With sharding, the outbox of every shard is drained in turn.
+ * <p>
+ * Metrics: tokyo.customer.projection.lag, the time between a write and its projection.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+@ConditionalOnProperty(prefix = "tokyo.customer.projection", name = "enabled", havingValue = "true")
+public class CustomerProjector {
+
+    /** The MongoDB error of an upsert whose filter missed an existing document. */
+    private static final int DUPLICATE_KEY = 11000;
+    static final String LAG = "tokyo.customer.projection.lag";
+
+    private final CustomerOutboxRepository customerOutboxRepository;
+    private final CustomerRepository customerRepository;
+    private final CustomerMapper customerMapper;
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration interval;
+    private final Timer lag;
+    /** The shards, as each writer leaves its entries on the shard of its transaction; a null one without sharding. */
+    private final List<Integer> outboxes = new ArrayList<>();
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("customer-projection-"));
+
+    public CustomerProjector(CustomerOutboxRepository customerOutboxRepository, CustomerRepository customerRepository,
+                             CustomerMapper customerMapper, MongoTemplate mongoTemplate,
+                             PlatformTransactionManager transactionManager, ObjectProvider<ShardRoutingDataSource> shards,
+                             CustomerProperties customerProperties, MeterRegistry meterRegistry) {
+        this.customerOutboxRepository = customerOutboxRepository;
+        this.customerRepository = customerRepository;
+        this.customerMapper = customerMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.batchSize = customerProperties.getProjection().getBatchSize();
+        this.interval = customerProperties.getProjection().getInterval();
+        this.lag = Timer.builder(LAG)
+                .description("Time between a customer write and its projection into the read model")
+                .register(meterRegistry);
+        ShardRoutingDataSource sharded = shards.getIfAvailable();
+        if (sharded == null)
+            outboxes.add(null);
+        else
+            for (int shard = 0; shard < sharded.size(); shard++)
+                outboxes.add(shard);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::projectOrLog, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * @return the number of outbox entries applied
+     */
+    public int project() {
+        int applied = 0;
+        for (Integer shard : outboxes)
+            applied += project(shard);
+        return applied;
+    }
+
+    /**
+     * The entries are read and deleted on their shard, the customers they name read from theirs.
+     */
+    private int project(Integer shard) {
+        int applied = 0;
+        List<CustomerOutbox> batch;
+        do {
+            batch = DataSourceShard.callOnShard(shard, () -> customerOutboxRepository.findOldest(PageRequest.of(0, batchSize)));
+            if (batch.isEmpty())
+                break;
+            apply(batch);
+            List<CustomerOutbox> applying = batch;
+            DataSourceShard.runOnShard(shard, () -> customerOutboxRepository.deleteInBatch(applying));
+            long now = System.currentTimeMillis();
+            batch.forEach(entry -> lag.record(now - entry.getCreatedDate().getTime(), TimeUnit.MILLISECONDS));
+            applied += batch.size();
+        } while (batch.size() == batchSize);
+        return applied;
+    }
+
+    private void projectOrLog() {
+        // An exception would cancel the next runs.
+        try {
+            project();
+        } catch (RuntimeException e) {
+            log.warn("Customer projection failed, retried in {}", interval, e);
+        }
+    }
+
+    private void apply(List<CustomerOutbox> batch) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        batch.forEach(entry -> ids.add(entry.getCustomerId()));
+        Map<UUID, CustomerDto> current = new HashMap<>();
+        // From the primary: on a lagging replica a new customer would look deleted.
+        DataSourceRoute.runOnPrimary(() -> transactionTemplate.executeWithoutResult(status -> customerRepository.findAllById(ids)
+                .forEach(customer -> current.put(customer.getId(), customerMapper.customerToCustomerDto(customer)))));
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CustomerDto.class);
+        List<UUID> gone = new ArrayList<>();
+        for (UUID id : ids) {
+            CustomerDto customerDto = current.get(id);
+            if (customerDto == null)
+                gone.add(id);
+            else
+                // A document at this version or newer is not matched, and its id refuses the insert.
+                bulk.replaceOne(query(where("id").is(id).and("version").lt(customerDto.getVersion())),
+                        customerDto, FindAndReplaceOptions.options().upsert());
+        }
+        if (!gone.isEmpty())
+            bulk.remove(query(where("id").in(gone)));
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY))
+                throw e;
+        }
+    }
+}
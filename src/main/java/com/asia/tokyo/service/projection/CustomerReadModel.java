@@ -0,0 +1,43 @@
+package com.asia.tokyo.service.projection;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.service.search.LikePatterns;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * The MongoDB copy of the customers kept by {@link CustomerProjector}. It may lag behind the
+ * database by the projection lag.
+ */
+@Profile("!reactive")
+@Component
+@ConditionalOnProperty(prefix = "tokyo.customer.projection", name = "enabled", havingValue = "true")
+public class CustomerReadModel {
+
+    private final MongoTemplate mongoTemplate;
+
+    public CustomerReadModel(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public Set<CustomerDto> findAll() {
+        return new HashSet<>(mongoTemplate.findAll(CustomerDto.class));
+    }
+
+    public List<CustomerDto> findAllByCustomerNameLike(String customerName, Integer limit) {
+        Query query = query(where("customerName").regex(LikePatterns.toRegex(customerName)));
+        if (limit != null)
+            query.limit(limit);
+        return mongoTemplate.find(query, CustomerDto.class);
+    }
+}
@@ -0,0 +1,233 @@
+package com.asia.tokyo.service.search;
+
+import com.asia.tokyo.config.datasource.DataSourceRoute;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory trigram index over the customer names. For a LIKE pattern it gives the ids of the
+ * customers whose name holds every trigram of the pattern literals: a superset of the matches,
+ * which the caller still has to check against the real predicate.
+ * <p>
+ * Names are indexed lower case and without accents so the candidates hold for case and accent
+ * sensitive or insensitive collations; other equivalences of a collation (such as ß = ss) are not
+ * known to the index, which must then be disabled with tokyo.customer.search.index-enabled=false.
+ * <p>
+ * The index is rebuilt in the background once the application is ready, and follows the
+ * committed writes of this instance afterwards. Until the first build is done it answers nothing.
+ * It does not see the writes of other instances: with several instances writing, a customer created
+ * or renamed elsewhere is missed by the searches of this one until its next {@link #rebuild()}, so
+ * the index is to be disabled there too, leaving the searches to the database.
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class CustomerNameIndex {
+
+    static final int GRAM = 3;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final CustomerRepository customerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+
+    private volatile Trigrams current;
+    private volatile Trigrams building;
+
+    public CustomerNameIndex(CustomerRepository customerRepository, PlatformTransactionManager transactionManager,
+                             TaskExecutor taskExecutor) {
+        this.customerRepository = customerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    public int size() {
+        Trigrams trigrams = current;
+        return trigrams == null ? 0 : trigrams.names.size();
+    }
+
+    /**
+     * @return the candidate ids, or empty when the index cannot narrow the search: not built yet,
+     * no literal of at least three characters in the pattern, or more than {@code maxCandidates} candidates.
+     */
+    public Optional<Set<UUID>> candidates(String likePattern, int maxCandidates) {
+        Trigrams trigrams = current;
+        if (trigrams == null)
+            return Optional.empty();
+        Set<String> grams = new HashSet<>();
+        for (String literal : literals(likePattern))
+            grams.addAll(grams(literal));
+        if (grams.isEmpty())
+            return Optional.empty();
+
+        List<Set<UUID>> postings = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            Set<UUID> posting = trigrams.postings.get(gram);
+            if (posting == null || posting.isEmpty())
+                return Optional.of(Collections.emptySet());
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        if (postings.get(0).size() > maxCandidates)
+            return Optional.empty();
+
+        Set<UUID> result = new HashSet<>();
+        for (UUID id : postings.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++)
+                inAll = postings.get(i).contains(id);
+            if (inAll)
+                result.add(id);
+        }
+        return Optional.of(result);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (event.getType() != CustomerChangedEvent.Type.DELETED && event.getCustomerName() == null)
+            return;
+        Trigrams next = building;
+        if (next != null)
+            next.touched.add(event.getId());
+        for (Trigrams trigrams : new Trigrams[]{current, next}) {
+            if (trigrams == null)
+                continue;
+            if (event.getType() == CustomerChangedEvent.Type.DELETED)
+                trigrams.remove(event.getId());
+            else
+                trigrams.put(event.getId(), event.getCustomerName(), false);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        taskExecutor.execute(this::rebuild);
+    }
+
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        Trigrams next = new Trigrams();
+        building = next;
+        try {
+            // From the primary: a replica may lag behind the changes already followed.
+            DataSourceRoute.runOnPrimary(() -> transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<CustomerRepository.CustomerName> names = customerRepository.streamAllCustomerNames()) {
+                    names.filter(name -> name.getCustomerName() != null)
+                            .forEach(name -> next.put(name.getId(), name.getCustomerName(), true));
+                }
+            }));
+            next.touched.clear();
+            current = next;
+            log.info("Customer name index built with {} customers in {} ms", next.names.size(), System.currentTimeMillis() - start);
+        } finally {
+            building = null;
+        }
+    }
+
+    static List<String> literals(String likePattern) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < likePattern.length(); i++) {
+            char c = likePattern.charAt(i);
+            if (c == '\\' && i + 1 < likePattern.length()) {
+                literal.append(likePattern.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                if (literal.length() > 0)
+                    literals.add(literal.toString());
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0)
+            literals.add(literal.toString());
+        return literals;
+    }
+
+    static Set<String> grams(String text) {
+        String normalized = fold(text);
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= normalized.length(); i++)
+            grams.add(normalized.substring(i, i + GRAM));
+        return grams;
+    }
+
+    /**
+     * Lower case, with the accents dropped: "Émile" and "emile" have the same trigrams.
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static class Trigrams {
+        private final Map<UUID, String> names = new ConcurrentHashMap<>();
+        private final Map<String, Set<UUID>> postings = new ConcurrentHashMap<>();
+        /** Ids written while this index was being loaded: the loaded row may be older than them. */
+        private final Set<UUID> touched = ConcurrentHashMap.newKeySet();
+
+        void put(UUID id, String name, boolean loading) {
+            // compute() serializes the writes of one id, postings included.
+            names.compute(id, (key, previous) -> {
+                if (loading && touched.contains(key))
+                    return previous;
+                if (previous != null)
+                    grams(previous).forEach(gram -> removePosting(gram, key));
+                grams(name).forEach(gram -> addPosting(gram, key));
+                return name;
+            });
+        }
+
+        void remove(UUID id) {
+            names.computeIfPresent(id, (key, previous) -> {
+                grams(previous).forEach(gram -> removePosting(gram, key));
+                return null;
+            });
+        }
+
+        private void addPosting(String gram, UUID id) {
+            postings.compute(gram, (g, ids) -> {
+                Set<UUID> posting = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+                posting.add(id);
+                return posting;
+            });
+        }
+
+        private void removePosting(String gram, UUID id) {
+            postings.computeIfPresent(gram, (g, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+}
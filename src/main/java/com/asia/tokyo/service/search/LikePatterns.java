@@ -0,0 +1,33 @@
+package com.asia.tokyo.service.search;
+
+import java.util.regex.Pattern;
+
+public final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    /**
+     * Translates a SQL LIKE pattern, with its backslash escapes, into an anchored regular expression.
+     */
+    public static String toRegex(String likePattern) {
+        StringBuilder regex = new StringBuilder("^");
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < likePattern.length(); i++) {
+            char c = likePattern.charAt(i);
+            if (c == '\\' && i + 1 < likePattern.length()) {
+                literal.append(likePattern.charAt(++i));
+            } else if (c == '%' || c == '_') {
+                if (literal.length() > 0)
+                    regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0)
+            regex.append(Pattern.quote(literal.toString()));
+        return regex.append('$').toString();
+    }
+}
@@ -0,0 +1,253 @@
+package com.asia.tokyo.service.writebehind;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.config.datasource.DataSourceShard;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.repository.CustomerShardRouter;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit of single creations. They are queued in a bounded buffer and inserted by one committer
+ * thread, as many as {@code max-batch-size} per transaction (sent as JDBC batches, multi-row inserts
+ * on MySQL with rewriteBatchedStatements=true). The committer takes what is queued, waiting up to
+ * {@code linger} for more. The future of each creation completes once its transaction is committed.
+ * A refused group is retried one by one, so only the faulty creations fail. With sharding, each shard
+ * commits its part of the group in a transaction of its own, and only a refused part is retried.
+ * <p>
+ * A creation still queued after {@code timeout} is withdrawn and fails with a {@link CustomerUnavailableException}:
+ * it was never written, so it can be retried. Once taken by the committer it is waited for, as it may commit.
+ * On shutdown the group being committed is finished and the queued creations fail the same way.
+ * <p>
+ * Metrics: tokyo.customer.write-behind.queue (queued creations), .batch (creations per commit),
+ * .commit (commit latency), .rejected (creations refused on a full queue or on shutdown)
+ * and .timeout (creations withdrawn after waiting too long).
+ */
+@Slf4j
+@Profile("!reactive")
+@Component
+public class CustomerWriteBehind {
+
+    private final CustomerRepository customerRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<CustomerShardRouter> customerShardRouter;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final Duration timeout;
+    private final BlockingQueue<Pending> queue;
+    private final ScheduledThreadPoolExecutor timer;
+    private final DistributionSummary batchSize;
+    private final Timer commitTimer;
+    private final Counter rejected;
+    private final Counter timedOut;
+    private final Thread committer;
+
+    private volatile boolean running;
+
+    public CustomerWriteBehind(CustomerRepository customerRepository, EntityManager entityManager,
+                               PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                               ObjectProvider<CustomerShardRouter> customerShardRouter, CustomerProperties customerProperties,
+                               MeterRegistry meterRegistry) {
+        CustomerProperties.WriteBehind config = customerProperties.getWriteBehind();
+        this.customerRepository = customerRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.customerShardRouter = customerShardRouter;
+        this.maxBatchSize = config.getMaxBatchSize();
+        this.lingerNanos = config.getLinger().toNanos();
+        this.timeout = config.getTimeout();
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        CustomizableThreadFactory timerThreads = new CustomizableThreadFactory("customer-write-behind-timer-");
+        timerThreads.setDaemon(true);
+        this.timer = new ScheduledThreadPoolExecutor(1, timerThreads);
+        this.timer.setRemoveOnCancelPolicy(true);
+        Gauge.builder("tokyo.customer.write-behind.queue", queue, BlockingQueue::size)
+                .description("Creations waiting for the committer").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("tokyo.customer.write-behind.batch")
+                .description("Creations committed together").register(meterRegistry);
+        this.commitTimer = Timer.builder("tokyo.customer.write-behind.commit")
+                .description("Time spent committing a group of creations").register(meterRegistry);
+        this.rejected = meterRegistry.counter("tokyo.customer.write-behind.rejected");
+        this.timedOut = meterRegistry.counter("tokyo.customer.write-behind.timeout");
+        this.running = config.isEnabled();
+        if (running) {
+            committer = new Thread(this::run, "customer-write-behind");
+            committer.setDaemon(true);
+            committer.start();
+        } else {
+            committer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return committer != null;
+    }
+
+    /**
+     * @return completed with the created customer once committed, or with a {@link CustomerUnavailableException}
+     * when the queue is full, when it waited too long in the queue or when the application stops
+     */
+    public CompletableFuture<Customer> submit(Customer customer) {
+        Pending pending = new Pending(customer);
+        if (!running || !queue.offer(pending)) {
+            refuse(pending, "Too many customer creations, please retry.");
+            return pending.future;
+        }
+        // Queued while shutting down, after the queue was emptied.
+        if (!running && queue.remove(pending)) {
+            refuse(pending, "The application is stopping, please retry.");
+            return pending.future;
+        }
+        ScheduledFuture<?> timeoutTask = timer.schedule(() -> {
+            // Taken out of the queue here, the committer can no longer write it.
+            if (queue.remove(pending)) {
+                timedOut.increment();
+                pending.future.completeExceptionally(new CustomerUnavailableException("The customer creation waited too long, please retry."));
+            }
+        }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+        pending.future.whenComplete((created, e) -> timeoutTask.cancel(false));
+        return pending.future;
+    }
+
+    /**
+     * Stops taking creations, fails the queued ones and waits for the group being committed.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        List<Pending> queued = new ArrayList<>();
+        queue.drainTo(queued);
+        queued.forEach(pending -> refuse(pending, "The application is stopping, please retry."));
+        if (committer != null)
+            committer.join(timeout.toMillis());
+        timer.shutdownNow();
+    }
+
+    private void refuse(Pending pending, String message) {
+        rejected.increment();
+        pending.future.completeExceptionally(new CustomerUnavailableException(message));
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == maxBatchSize || remaining <= 0)
+                        break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        long start = System.nanoTime();
+        try {
+            for (Map.Entry<Integer, List<Pending>> part : byShard(batch).entrySet())
+                DataSourceShard.runOnShard(part.getKey(), () -> commitPart(part.getValue()));
+        } catch (RuntimeException e) {
+            log.error("Could not commit {} customer creations", batch.size(), e);
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        }
+        commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSize.record(batch.size());
+    }
+
+    /**
+     * One transaction per shard: a transaction cannot span shards. Without sharding the group is
+     * committed whole, under a null shard.
+     */
+    private Map<Integer, List<Pending>> byShard(List<Pending> batch) {
+        CustomerShardRouter router = customerShardRouter.getIfAvailable();
+        return router == null ? Collections.singletonMap(null, batch) : router.byShard(batch, pending -> pending.customer);
+    }
+
+    private void commitPart(List<Pending> part) {
+        List<Customer> customers = new ArrayList<>(part.size());
+        part.forEach(pending -> customers.add(pending.customer));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                customerRepository.saveAll(customers);
+                entityManager.flush();
+                entityManager.clear();
+                customers.forEach(customer -> eventPublisher.publishEvent(CustomerChangedEvent.created(customer)));
+            });
+            part.forEach(pending -> pending.future.complete(pending.customer));
+        } catch (DataAccessException | PersistenceException e) {
+            for (Pending pending : part) {
+                // Rolled back, so new again; it keeps its id, and with it its shard.
+                pending.customer.setVersion(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        customerRepository.save(pending.customer);
+                        eventPublisher.publishEvent(CustomerChangedEvent.created(pending.customer));
+                    });
+                    pending.future.complete(pending.customer);
+                } catch (DataAccessException | PersistenceException ex) {
+                    pending.future.completeExceptionally(new CustomerException(NestedExceptionUtils.getMostSpecificCause(ex).getMessage()));
+                }
+            }
+        }
+    }
+
+    private static class Pending {
+        private final Customer customer;
+        private final CompletableFuture<Customer> future = new CompletableFuture<>();
+
+        Pending(Customer customer) {
+            this.customer = customer;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+-- Moves customer.id from varchar(36) to binary(16), for spring.jpa.properties.tokyo.id-storage=binary.
+-- The existing ids keep their value: UNHEX of the text without dashes is exactly what Hibernate
+-- UUIDBinaryType reads back. Old random ids stay where they are in the index, new time ordered
+-- ids are appended at its end.
+--
+-- Run it with the application stopped, then start it with the binary storage.
+-- On a large table, run the UPDATE by ranges of created_date or use an online schema change tool.
+
+ALTER TABLE customer ADD COLUMN id_bin BINARY(16) NULL;
+
+UPDATE customer SET id_bin = UNHEX(REPLACE(id, '-', ''));
+
+ALTER TABLE customer
+    DROP INDEX idx_customer_created_date_id,
+    DROP PRIMARY KEY,
+    DROP COLUMN id,
+    CHANGE COLUMN id_bin id BINARY(16) NOT NULL FIRST,
+    ADD PRIMARY KEY (id),
+    ADD INDEX idx_customer_created_date_id (created_date, id);
+
+-- Going back: ADD COLUMN id_txt VARCHAR(36), then
+-- UPDATE customer SET id_txt = LOWER(CONCAT_WS('-', SUBSTR(HEX(id), 1, 8), SUBSTR(HEX(id), 9, 4),
+--     SUBSTR(HEX(id), 13, 4), SUBSTR(HEX(id), 17, 4), SUBSTR(HEX(id), 21)));
+-- and swap the columns the same way.
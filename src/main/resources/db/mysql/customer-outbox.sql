@@ -0,0 +1,11 @@
+-- Outbox of the MongoDB read model, for tokyo.customer.projection.enabled=true.
+-- With spring.jpa.properties.tokyo.id-storage=binary, declare id and customer_id as BINARY(16).
+
+CREATE TABLE customer_outbox (
+    id           VARCHAR(36) NOT NULL,
+    customer_id  VARCHAR(36) NOT NULL,
+    type         VARCHAR(7)  NOT NULL,
+    created_date DATETIME(6) NULL,
+    PRIMARY KEY (id),
+    INDEX idx_customer_outbox_created_date (created_date)
+);
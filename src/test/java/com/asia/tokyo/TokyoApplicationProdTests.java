@@ -0,0 +1,34 @@
+package com.asia.tokyo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import springfox.documentation.spring.web.plugins.Docket;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("prod")
+@DisplayName("Test the prod profile")
+class TokyoApplicationProdTests {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("Starting with the prod profile is skipping Swagger and reporting the time to ready")
+    void starting_with_prod_profile_is_skipping_swagger_and_reporting_startup() {
+        assertEquals(0, applicationContext.getBeanNamesForType(Docket.class).length);
+        assertTrue(meterRegistry.get("tokyo.startup.ready").timeGauge().value(TimeUnit.MILLISECONDS) > 0);
+    }
+}
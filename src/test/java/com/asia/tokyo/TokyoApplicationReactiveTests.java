@@ -0,0 +1,37 @@
+package com.asia.tokyo;
+
+import com.asia.tokyo.service.CustomerService;
+import com.asia.tokyo.service.ReactiveCustomerService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The embedded Mongo is left out: no server is started, the reactive driver only connects on the first request.
+ */
+@SpringBootTest(properties = "spring.autoconfigure.exclude=${tokyo.reactive.excluded-auto-configuration},"
+        + "org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoConfiguration")
+@ActiveProfiles("reactive")
+@DisplayName("Test the reactive profile")
+class TokyoApplicationReactiveTests {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    @DisplayName("Starting with the reactive profile is leaving out the datasource and JPA")
+    void starting_with_reactive_profile_is_leaving_out_datasource_and_jpa() {
+        assertEquals(0, applicationContext.getBeanNamesForType(DataSource.class).length);
+        assertEquals(0, applicationContext.getBeanNamesForType(EntityManagerFactory.class).length);
+        assertEquals(0, applicationContext.getBeanNamesForType(CustomerService.class).length);
+        assertEquals(1, applicationContext.getBeanNamesForType(ReactiveCustomerService.class).length);
+    }
+}
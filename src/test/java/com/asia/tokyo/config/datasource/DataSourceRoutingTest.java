@@ -0,0 +1,117 @@
+package com.asia.tokyo.config.datasource;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerSnapshot;
+import com.asia.tokyo.service.CustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two H2 databases stand in for the primary and a replica. Nothing replicates between them:
+ * a read sees the customers of the database it was routed to.
+ */
+@SpringBootTest(properties = {
+        "tokyo.datasource.routing.enabled=true",
+        "tokyo.datasource.primary.jdbc-url=" + DataSourceRoutingTest.PRIMARY_URL,
+        "tokyo.datasource.replicas[0].jdbc-url=" + DataSourceRoutingTest.REPLICA_URL})
+@DisplayName("Test the primary / replica routing")
+class DataSourceRoutingTest {
+
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    private final JdbcTemplate primary = new JdbcTemplate(new SimpleDriverDataSource(new org.h2.Driver(), PRIMARY_URL));
+    private final JdbcTemplate replica = new JdbcTemplate(new SimpleDriverDataSource(new org.h2.Driver(), REPLICA_URL));
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        // The schema is created by Hibernate on the primary only.
+        replica.execute("DROP ALL OBJECTS");
+        primary.queryForList("SCRIPT NODATA", String.class).forEach(replica::execute);
+        primary.update("DELETE FROM customer");
+    }
+
+    @AfterEach
+    void tearDown() {
+        DataSourceRoute.clear();
+    }
+
+    @Test
+    @DisplayName("Adding a customer is writing to the primary and listing them is reading from the replica")
+    void adding_customer_is_writing_to_primary_and_listing_is_reading_from_replica() {
+        // GIVEN
+        double replicaConnections = meterRegistry.get("tokyo.datasource.route").tag("route", "replica-0").counter().count();
+
+        // WHEN
+        customerService.addCustomer(CustomerDto.builder().customerName("James Bond").tableNumber("7").build());
+
+        // THEN
+        assertEquals(1, primary.queryForObject("SELECT COUNT(*) FROM customer", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT COUNT(*) FROM customer", Integer.class));
+        assertTrue(customerService.findAll().isEmpty());
+        assertEquals(replicaConnections + 1, meterRegistry.get("tokyo.datasource.route").tag("route", "replica-0").counter().count());
+        meterRegistry.get("hikaricp.connections.active").tag("pool", "primary").gauge();
+        meterRegistry.get("hikaricp.connections.active").tag("pool", "replica-0").gauge();
+    }
+
+    @Test
+    @DisplayName("Listing customers pinned to the primary is reading the client's own write")
+    void listing_customers_pinned_to_primary_is_reading_own_write() {
+        // GIVEN
+        customerService.addCustomer(CustomerDto.builder().customerName("James Bond").tableNumber("7").build());
+
+        // WHEN
+        DataSourceRoute.pinToPrimary();
+
+        // THEN
+        assertEquals(1, customerService.findAll().size());
+        assertEquals(1, customerService.findAllByCustomerNameLike("James%").size());
+    }
+
+    @Test
+    @DisplayName("Listing customers with their version is reading both from one replica connection")
+    void listing_customers_with_version_is_reading_both_from_replica() {
+        // GIVEN
+        customerService.addCustomer(CustomerDto.builder().customerName("James Bond").tableNumber("7").build());
+        double replicaConnections = meterRegistry.get("tokyo.datasource.route").tag("route", "replica-0").counter().count();
+
+        // WHEN
+        CustomerSnapshot snapshot = customerService.findAllWithVersion(version -> false);
+
+        // THEN
+        assertEquals("0-0-0", snapshot.getVersion());
+        assertTrue(snapshot.getCustomers().isEmpty());
+        assertEquals(replicaConnections + 1, meterRegistry.get("tokyo.datasource.route").tag("route", "replica-0").counter().count());
+    }
+
+    @Test
+    @DisplayName("Finding a customer by id is loading the shared cache from the primary")
+    void finding_customer_by_id_is_loading_cache_from_primary() {
+        // GIVEN
+        CustomerDto added = customerService.addCustomer(CustomerDto.builder().customerName("James Bond").tableNumber("7").build());
+
+        // WHEN
+        CustomerDto found = customerService.findCustomerById(added.getId());
+
+        // THEN
+        assertEquals(added.getId(), found.getId());
+        assertFalse(DataSourceRoute.isPinnedToPrimary());
+    }
+}
@@ -0,0 +1,71 @@
+package com.asia.tokyo.config.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Test ReadYourWritesFilter")
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(2));
+    private final AtomicBoolean pinned = new AtomicBoolean();
+    private final FilterChain chain = (request, response) -> pinned.set(DataSourceRoute.isPinnedToPrimary());
+
+    @Test
+    @DisplayName("Writing is pinning the request and the next reads of the client to the primary")
+    void writing_is_pinning_request_and_next_reads_to_primary() throws Exception {
+        // GIVEN
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // WHEN
+        filter.doFilter(new MockHttpServletRequest("POST", "/api/customer/add"), response, chain);
+
+        // THEN
+        assertTrue(pinned.get());
+        assertFalse(DataSourceRoute.isPinnedToPrimary());
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE);
+        assertNotNull(cookie);
+        assertTrue(Long.parseLong(cookie.getValue()) > System.currentTimeMillis());
+    }
+
+    @Test
+    @DisplayName("Reading with a current cookie is pinned to the primary")
+    void reading_with_current_cookie_is_pinned_to_primary() throws Exception {
+        // GIVEN
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/customer/all");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() + 60_000)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // WHEN
+        filter.doFilter(request, response, chain);
+
+        // THEN
+        assertTrue(pinned.get());
+        assertNull(response.getCookie(ReadYourWritesFilter.COOKIE));
+    }
+
+    @Test
+    @DisplayName("Reading with an expired cookie is not pinned")
+    void reading_with_expired_cookie_is_not_pinned() throws Exception {
+        // GIVEN
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/customer/all");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE, Long.toString(System.currentTimeMillis() - 1)));
+
+        // WHEN
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        // THEN
+        assertFalse(pinned.get());
+    }
+}
@@ -1,31 +1,72 @@
 package com.asia.tokyo.controller;
 
+import com.asia.tokyo.config.BinaryFormatsConfig;
+import com.asia.tokyo.controller.bulkhead.CustomerBulkheads;
+import com.asia.tokyo.controller.changes.CustomerChangeFeed;
+import com.asia.tokyo.controller.model.CustomerBulkDeleteResult;
+import com.asia.tokyo.controller.model.CustomerBulkResult;
 import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerLookupResult;
+import com.asia.tokyo.controller.model.CustomerPagedList;
+import com.asia.tokyo.controller.model.CustomerSnapshot;
+import com.asia.tokyo.controller.model.CustomerTableOccupancy;
 import com.asia.tokyo.domain.Customer;
 import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import com.asia.tokyo.exception.CustomerVersionConflictException;
 import com.asia.tokyo.service.CustomerService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.restdocs.AutoConfigureRestDocs;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.restdocs.RestDocumentationExtension;
 import org.springframework.restdocs.constraints.ConstraintDescriptions;
 import org.springframework.restdocs.payload.FieldDescriptor;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.*;
@@ -33,13 +74,18 @@ import static org.springframework.restdocs.payload.PayloadDocumentation.*;
 import static org.springframework.restdocs.request.RequestDocumentation.parameterWithName;
 import static org.springframework.restdocs.request.RequestDocumentation.pathParameters;
 import static org.springframework.restdocs.snippet.Attributes.key;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
 @ExtendWith(RestDocumentationExtension.class)
 @AutoConfigureRestDocs
 @WebMvcTest(CustomerController.class)
+@Import({CustomerBulkheads.class, BinaryFormatsConfig.class})
 @DisplayName("Test CustomerController")
 public class CustomerControllerTest {
 
@@ -49,6 +95,12 @@ public class CustomerControllerTest {
     @MockBean
     private CustomerService customerService;
 
+    @MockBean
+    private CustomerChangeFeed customerChangeFeed;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private List<CustomerDto> customersDto;
 
     @BeforeEach
@@ -71,7 +123,7 @@ public class CustomerControllerTest {
         given(customerService.addCustomer(any(CustomerDto.class))).willReturn(customerAdded);
 
         // WHEN THEN
-        mvc.perform(post("/api/customer/add")
+        performAsync(post("/api/customer/add")
                 .content(Utils.asJsonString(customer))
                 .contentType(APPLICATION_JSON)
                 .accept(APPLICATION_JSON))
@@ -125,7 +177,7 @@ public class CustomerControllerTest {
         given(customerService.findCustomerById(uuid)).willReturn(customer);
 
         // WHEN THEN
-        mvc.perform(get("/api/customer/get/{uuid}", uuid.toString())
+        performAsync(get("/api/customer/get/{uuid}", uuid.toString())
                 .accept(APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andDo(document("api/customer-get",
@@ -142,6 +194,45 @@ public class CustomerControllerTest {
                 .equals(customer);
     }
 
+    @Test
+    @DisplayName("Finding a customer with Accept CBOR is responding the customer in CBOR")
+    public void finding_customer_in_cbor_is_responding_cbor() throws Exception {
+        // GIVEN
+        ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        UUID uuid = UUID.randomUUID();
+        CustomerDto customer = CustomerDto.builder().id(uuid).version(3).customerName("James Bond").tableNumber("10")
+                .lastModifiedDate(OffsetDateTime.of(2020, 7, 1, 12, 30, 15, 123_456_000, ZoneOffset.UTC)).build();
+        given(customerService.findCustomerById(uuid)).willReturn(customer);
+
+        // WHEN
+        MvcResult result = performAsync(get("/api/customer/get/{uuid}", uuid)
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn();
+
+        // THEN
+        assertEquals(customer, cbor.readValue(result.getResponse().getContentAsByteArray(), CustomerDto.class));
+    }
+
+    @Test
+    @DisplayName("Adding a customer sent in Smile is responding status 201 in JSON by default")
+    public void adding_customer_in_smile_is_responding_status_201() throws Exception {
+        // GIVEN
+        ObjectMapper smile = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+        CustomerDto customer = CustomerDto.builder().customerName("James Bond").tableNumber("10").build();
+        given(customerService.addCustomer(customer)).willReturn(CustomerDto.builder().id(UUID.randomUUID()).customerName("James Bond").tableNumber("10").build());
+
+        // WHEN THEN
+        performAsync(post("/api/customer/add")
+                .content(smile.writeValueAsBytes(customer))
+                .contentType(CustomerController.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(jsonPath("$.customerName").value("James Bond"));
+    }
+
     @Test
     @DisplayName("Finding unknown uuid is giving a status 400")
     public void finding_unknown_customer_by_uuid_is_responding_status_400() throws Exception {
@@ -150,13 +241,175 @@ public class CustomerControllerTest {
         given(customerService.findCustomerById(any(UUID.class))).willThrow(new CustomerException("The uuid is unknown."));
 
         // WHEN THEN
-        mvc.perform(get("/api/customer/get/{uuid}", UUID.randomUUID())
+        performAsync(get("/api/customer/get/{uuid}", UUID.randomUUID())
                 .contentType(APPLICATION_JSON)
                 .accept(APPLICATION_JSON))
                 .andExpect(status().isBadRequest());
 
     }
 
+    @Test
+    @DisplayName("Failing with a customer error is counting it by message category")
+    public void failing_with_customer_error_is_counting_it_by_category() throws Exception {
+        // GIVEN
+        willThrow(new CustomerException("The customer at line 7 is not valid JSON.")).given(customerService).findCustomerById(any(UUID.class));
+
+        // WHEN
+        performAsync(get("/api/customer/get/{uuid}", UUID.randomUUID()))
+                .andExpect(status().isBadRequest());
+
+        // THEN
+        assertEquals(1, meterRegistry.get("tokyo.customer.errors")
+                .tag("category", "The customer at line N is not valid JSON.").counter().count());
+    }
+
+    @Test
+    @DisplayName("Finding customer when the bulkhead is full is responding status 503")
+    public void finding_customer_when_bulkhead_is_full_is_responding_status_503() throws Exception {
+        // GIVEN
+        given(customerService.findCustomerById(any(UUID.class))).willThrow(new CustomerUnavailableException("Too many point-read requests, please retry."));
+
+        // WHEN THEN
+        performAsync(get("/api/customer/get/{uuid}", UUID.randomUUID())
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        assertEquals(1, meterRegistry.get("tokyo.customer.errors")
+                .tag("category", "Too many point-read requests, please retry.").counter().count());
+    }
+
+    @Test
+    @DisplayName("Finding customer with its current ETag is responding status 304 without body")
+    public void finding_customer_with_current_etag_is_responding_status_304() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto customer = CustomerDto.builder().id(uuid).version(3).customerName("James Bond").tableNumber("10").build();
+        given(customerService.findCustomerById(uuid)).willReturn(customer);
+        String eTag = "\"" + uuid + "-3\"";
+
+        // WHEN THEN
+        performAsync(get("/api/customer/get/{uuid}", uuid))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        performAsync(get("/api/customer/get/{uuid}", uuid)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Finding a customer in CBOR is responding another ETag than in JSON, usable with If-Match")
+    public void finding_customer_in_cbor_is_responding_its_own_etag() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto customer = CustomerDto.builder().id(uuid).version(3).customerName("James Bond").tableNumber("10").build();
+        given(customerService.findCustomerById(uuid)).willReturn(customer);
+        String eTag = "\"" + uuid + "-3+cbor\"";
+
+        // WHEN THEN
+        performAsync(get("/api/customer/get/{uuid}", uuid)
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+        performAsync(get("/api/customer/get/{uuid}", uuid)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + uuid + "-3\""));
+        performAsync(delete("/api/customer/delete/{uuid}", uuid)
+                .header(HttpHeaders.IF_MATCH, eTag))
+                .andExpect(status().isNoContent());
+        verify(customerService).deleteCustomer(uuid, 3L);
+    }
+
+    @Test
+    @DisplayName("Displaying all customers with the current ETag is responding status 304 without reading them")
+    public void getting_all_customers_with_current_etag_is_responding_status_304() throws Exception {
+        // GIVEN
+        given(customerService.findAllWithVersion(any())).will(snapshot("4-1000.0-7", new HashSet<>(customersDto)));
+
+        // WHEN THEN
+        performAsync(get("/api/customer/all")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"4-1000.0-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"4-1000.0-7\""));
+        verify(customerService, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Updating with If-Match is updating that version and responding the new ETag")
+    public void updating_with_if_match_is_responding_new_etag() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto customer = CustomerDto.builder().customerName("James Bond").tableNumber("8").build();
+        CustomerDto customerUpdated = CustomerDto.builder().id(uuid).version(4).customerName("James Bond").tableNumber("8").build();
+        given(customerService.updateCustomer(eq(uuid), eq(3L), any(CustomerDto.class))).willReturn(customerUpdated);
+
+        // WHEN THEN
+        performAsync(put("/api/customer/update")
+                .header(HttpHeaders.IF_MATCH, "\"" + uuid + "-3\"")
+                .content(Utils.asJsonString(customer))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + uuid + "-4\""));
+    }
+
+    @Test
+    @DisplayName("Updating with a stale If-Match is responding status 412")
+    public void updating_with_stale_if_match_is_responding_status_412() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto customer = CustomerDto.builder().customerName("James Bond").tableNumber("8").build();
+        given(customerService.updateCustomer(eq(uuid), eq(2L), any(CustomerDto.class)))
+                .willThrow(new CustomerVersionConflictException("This customer is at version 3, not 2."));
+
+        // WHEN THEN
+        performAsync(put("/api/customer/update")
+                .header(HttpHeaders.IF_MATCH, "\"" + uuid + "-2\"")
+                .content(Utils.asJsonString(customer))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals(1, meterRegistry.get("tokyo.customer.errors")
+                .tag("category", "This customer is at version N, not N.").counter().count());
+    }
+
+    @Test
+    @DisplayName("Patching the table of a customer with If-Match is responding the new ETag")
+    public void patching_table_with_if_match_is_responding_new_etag() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto changes = CustomerDto.builder().tableNumber("8").build();
+        CustomerDto patched = CustomerDto.builder().id(uuid).version(4).customerName("James Bond").tableNumber("8").build();
+        given(customerService.patchCustomer(eq(uuid), eq(3L), any(CustomerDto.class))).willReturn(patched);
+
+        // WHEN THEN
+        performAsync(patch("/api/customer/update/{uuid}", uuid)
+                .header(HttpHeaders.IF_MATCH, "\"" + uuid + "-3\"")
+                .content(Utils.asJsonString(changes))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + uuid + "-4\""))
+                .andExpect(jsonPath("$.customerName").value("James Bond"))
+                .andExpect(jsonPath("$.tableNumber").value("8"));
+    }
+
+    @Test
+    @DisplayName("Patching a customer without any version is responding status 400")
+    public void patching_without_version_is_responding_status_400() throws Exception {
+        // GIVEN
+        CustomerDto changes = CustomerDto.builder().tableNumber("8").build();
+
+        // WHEN THEN
+        performAsync(patch("/api/customer/update/{uuid}", UUID.randomUUID())
+                .content(Utils.asJsonString(changes))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verify(customerService, never()).patchCustomer(any(UUID.class), anyLong(), any(CustomerDto.class));
+    }
+
     @Test
     @DisplayName("Updating unknown customer is responding status 400")
     public void updating_unknown_customer_is_responding_status_400() throws Exception {
@@ -166,7 +419,7 @@ public class CustomerControllerTest {
         given(customerService.updateCustomer(any(CustomerDto.class))).willThrow(new CustomerException("This customer is unknown."));
 
         // WHEN THEN
-        mvc.perform(put("/api/customer/update")
+        performAsync(put("/api/customer/update")
                 .content(Utils.asJsonString(customer))
                 .contentType(APPLICATION_JSON)
                 .accept(APPLICATION_JSON))
@@ -183,7 +436,7 @@ public class CustomerControllerTest {
         given(customerService.updateCustomer(any(CustomerDto.class))).willReturn(customerUpdated);
 
         // WHEN THEN
-        mvc.perform(put("/api/customer/update")
+        performAsync(put("/api/customer/update")
                 .content(Utils.asJsonString(customer))
                 .contentType(APPLICATION_JSON)
                 .accept(APPLICATION_JSON))
@@ -199,7 +452,7 @@ public class CustomerControllerTest {
         doNothing().when(customerService).deleteCustomer(uuid);
 
         // WHEN THEN
-        mvc.perform(delete("/api/customer/delete/{uuid}", uuid))
+        performAsync(delete("/api/customer/delete/{uuid}", uuid))
                 .andExpect(status().isNoContent());
     }
 
@@ -210,10 +463,93 @@ public class CustomerControllerTest {
         doThrow(new CustomerException("This UUIS is unknow.")).when(customerService).deleteCustomer(any(UUID.class));
 
         // WHEN THEN
-        mvc.perform(delete("/api/customer/delete/{uuid}", UUID.randomUUID()))
+        performAsync(delete("/api/customer/delete/{uuid}", UUID.randomUUID()))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("Deleting with a stale If-Match is responding status 412")
+    public void deleting_with_stale_if_match_is_responding_status_412() throws Exception {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        doThrow(new CustomerVersionConflictException("This customer is not at version 2."))
+                .when(customerService).deleteCustomer(uuid, 2L);
+
+        // WHEN THEN
+        performAsync(delete("/api/customer/delete/{uuid}", uuid)
+                .header(HttpHeaders.IF_MATCH, "\"" + uuid + "-2\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("Deleting customers in bulk is responding the deleted and missing counts")
+    public void deleting_customers_in_bulk_is_responding_counts() throws Exception {
+        // GIVEN
+        List<UUID> uuids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        given(customerService.deleteCustomers(uuids))
+                .willReturn(CustomerBulkDeleteResult.builder().received(2).deleted(1).missing(1).build());
+
+        // WHEN THEN
+        performAsync(post("/api/customer/delete/bulk")
+                .content(Utils.asJsonString(uuids))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.missing").value(1));
+    }
+
+    @Test
+    @DisplayName("Finding customers by UUIDs is responding the customers found and the missing UUIDs")
+    public void finding_customers_by_uuids_is_responding_found_and_missing() throws Exception {
+        // GIVEN
+        UUID missing = UUID.randomUUID();
+        List<UUID> uuids = Arrays.asList(customersDto.get(1).getId(), missing, customersDto.get(0).getId());
+        given(customerService.findCustomersByIds(uuids)).willReturn(CustomerLookupResult.builder()
+                .customers(Arrays.asList(customersDto.get(1), customersDto.get(0)))
+                .missing(Collections.singletonList(missing)).build());
+
+        // WHEN THEN
+        performAsync(post("/api/customer/get/bulk")
+                .content(Utils.asJsonString(uuids))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.customers", hasSize(2)))
+                .andExpect(jsonPath("$.customers[0].customerName").value("Marc Lee"))
+                .andExpect(jsonPath("$.missing[0]").value(missing.toString()));
+    }
+
+    @Test
+    @DisplayName("Displaying the table occupancy is responding the count per table")
+    public void getting_table_occupancy_is_responding_count_per_table() throws Exception {
+        // GIVEN
+        given(customerService.findTableOccupancy()).willReturn(Arrays.asList(
+                CustomerTableOccupancy.builder().tableNumber("10").customers(2).build(),
+                CustomerTableOccupancy.builder().tableNumber("2").customers(1).build()));
+
+        // WHEN THEN
+        performAsync(get("/api/customer/tables"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].tableNumber").value("10"))
+                .andExpect(jsonPath("$[0].customers").value(2));
+    }
+
+    @Test
+    @DisplayName("Following the changes is resuming the stream from the Last-Event-ID")
+    public void following_changes_is_resuming_from_last_event_id() throws Exception {
+        // GIVEN
+        given(customerChangeFeed.subscribe("kx1-41")).willReturn(new SseEmitter());
+
+        // WHEN THEN
+        mvc.perform(get("/api/customer/changes")
+                .header("Last-Event-ID", "kx1-41")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+        verify(customerChangeFeed).subscribe("kx1-41");
+    }
+
     @Test
     @DisplayName("Displaying all customers is responding status 200")
     public void getting_all_customers_is_responding_status_200() throws Exception {
@@ -221,12 +557,13 @@ public class CustomerControllerTest {
 
         Set<CustomerDto> customers = new HashSet<>(customersDto);
 
-        given(customerService.findAll()).willReturn(customers);
+        given(customerService.findAllWithVersion(any())).will(snapshot("4-1000.0-7", customers));
 
         // WHEN THEN
-        mvc.perform(get("/api/customer/all")
+        performAsync(get("/api/customer/all")
                 .accept(APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"4-1000.0-7\""))
                 .andExpect(jsonPath("$").isNotEmpty())
                 .andExpect(jsonPath("$", hasSize(4)));
     }
@@ -240,10 +577,10 @@ public class CustomerControllerTest {
         List<CustomerDto> customers = customersDto;
         List<CustomerDto> filteredCustomer = customers.stream().filter(c -> c.getCustomerName().contains(customerNamePattern)).collect(Collectors.toList());
 
-        given(customerService.findAllByCustomerNameLike(any(String.class))).willReturn(filteredCustomer);
+        given(customerService.findAllByCustomerNameLike(any(String.class), any())).willReturn(filteredCustomer);
 
         // WHEN THEN
-        mvc.perform(get("/api/customer/all/{patternName}", customerNamePattern)
+        performAsync(get("/api/customer/all/{patternName}", customerNamePattern)
                 .accept(APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isNotEmpty())
@@ -259,16 +596,182 @@ public class CustomerControllerTest {
         List<CustomerDto> customers = customersDto;
         List<CustomerDto> filteredCustomer = customers.stream().filter(c -> c.getCustomerName().contains(customerNamePattern)).collect(Collectors.toList());
 
-        given(customerService.findAllByCustomerNameLike(any(String.class))).willReturn(filteredCustomer);
+        given(customerService.findAllByCustomerNameLike(any(String.class), any())).willReturn(filteredCustomer);
 
         // WHEN THEN
-        mvc.perform(get("/api/customer/all/{patternName}", customerNamePattern)
+        performAsync(get("/api/customer/all/{patternName}", customerNamePattern)
                 .accept(APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isEmpty())
                 .andExpect(jsonPath("$", hasSize(0)));
     }
 
+    @Test
+    @DisplayName("Displaying a page of customers is responding the next cursor and status 200")
+    public void getting_a_page_of_customers_is_responding_next_cursor_and_status_200() throws Exception {
+        // GIVEN
+        CustomerPagedList page = new CustomerPagedList(customersDto.subList(0, 2), PageRequest.of(0, 2), "next-cursor");
+        given(customerService.findPage(isNull(), any(Integer.class), isNull())).willReturn(page);
+
+        // WHEN THEN
+        performAsync(get("/api/customer/page")
+                .param("size", "2")
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.totalPages").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Exporting all customers is streaming one JSON document per line and status 200")
+    public void exporting_all_customers_is_streaming_ndjson_and_status_200() throws Exception {
+        // GIVEN
+        willAnswer(invocation -> {
+            Consumer<CustomerDto> consumer = invocation.getArgument(0);
+            customersDto.forEach(consumer);
+            return null;
+        }).given(customerService).exportAll(any());
+
+        // WHEN
+        MvcResult mvcResult = mvc.perform(get("/api/customer/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        String body = mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CustomerController.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(4, lines.length);
+        assertEquals(customersDto.get(0).getId().toString(), JsonPath.read(lines[0], "$.id"));
+        assertEquals(3_600_000, mvcResult.getRequest().getAsyncContext().getTimeout());
+    }
+
+    @Test
+    @DisplayName("Exporting no customer is streaming an empty body and status 200")
+    public void exporting_no_customer_is_streaming_empty_body_and_status_200() throws Exception {
+        // GIVEN
+        willAnswer(invocation -> null).given(customerService).exportAll(any());
+
+        // WHEN
+        MvcResult mvcResult = mvc.perform(get("/api/customer/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        mvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Adding customers in bulk from a JSON array is reading one customer at a time and status 200")
+    public void adding_customers_in_bulk_from_json_array_is_responding_status_200() throws Exception {
+        // GIVEN
+        List<CustomerDto> received = new ArrayList<>();
+        given(customerService.addCustomers(any())).willAnswer(invocation -> {
+            Iterator<CustomerDto> customers = invocation.getArgument(0);
+            customers.forEachRemaining(received::add);
+            return CustomerBulkResult.builder().received(received.size()).created(received.size()).failures(Collections.emptyList()).build();
+        });
+
+        // WHEN THEN
+        performAsync(post("/api/customer/add/bulk")
+                .content(Utils.asJsonString(customersDto))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(4));
+        assertEquals("Marc Lee", received.get(1).getCustomerName());
+    }
+
+    @Test
+    @DisplayName("Adding customers in bulk from a CBOR array is reading the customers")
+    public void adding_customers_in_bulk_from_cbor_array_is_reading_customers() throws Exception {
+        // GIVEN
+        ObjectMapper cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        List<CustomerDto> received = new ArrayList<>();
+        given(customerService.addCustomers(any())).willAnswer(invocation -> {
+            Iterator<CustomerDto> customers = invocation.getArgument(0);
+            customers.forEachRemaining(received::add);
+            return CustomerBulkResult.builder().received(received.size()).build();
+        });
+
+        // WHEN THEN
+        performAsync(post("/api/customer/add/bulk")
+                .content(cbor.writeValueAsBytes(customersDto))
+                .contentType(MediaType.APPLICATION_CBOR)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4));
+        assertEquals(customersDto.get(3).getId(), received.get(3).getId());
+    }
+
+    @Test
+    @DisplayName("Adding customers in bulk from a JSON object instead of an array is responding status 400")
+    public void adding_customers_in_bulk_from_json_object_is_responding_status_400() throws Exception {
+        // WHEN THEN
+        performAsync(post("/api/customer/add/bulk")
+                .content(Utils.asJsonString(customersDto.get(0)))
+                .contentType(APPLICATION_JSON)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verify(customerService, never()).addCustomers(any());
+    }
+
+    @Test
+    @DisplayName("Adding customers in bulk from NDJSON is reading one customer per line")
+    public void adding_customers_in_bulk_from_ndjson_is_reading_one_customer_per_line() throws Exception {
+        // GIVEN
+        List<CustomerDto> received = new ArrayList<>();
+        given(customerService.addCustomers(any())).willAnswer(invocation -> {
+            Iterator<CustomerDto> customers = invocation.getArgument(0);
+            customers.forEachRemaining(received::add);
+            return CustomerBulkResult.builder().received(received.size()).build();
+        });
+        String body = customersDto.stream().map(Utils::asJsonString).collect(Collectors.joining("\n"));
+
+        // WHEN THEN
+        performAsync(post("/api/customer/add/bulk")
+                .content(body)
+                .contentType(CustomerController.APPLICATION_NDJSON_VALUE)
+                .accept(APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4));
+        assertEquals("Marc Lee", received.get(1).getCustomerName());
+    }
+
+    /**
+     * The controller answers from its bulkheads: the response comes with the async dispatch.
+     */
+    private ResultActions performAsync(RequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = mvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(mvcResult));
+    }
+
+    /**
+     * Answers findAllWithVersion at this version, without the customers when the caller knows it.
+     */
+    @SuppressWarnings("unchecked")
+    private static Answer<CustomerSnapshot> snapshot(String version, Set<CustomerDto> customers) {
+        return invocation -> new CustomerSnapshot(version,
+                ((Predicate<String>) invocation.getArgument(0)).test(version) ? null : customers);
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     private static class ConstrainedFields {
 
         private final ConstraintDescriptions constraintDescriptions;
@@ -0,0 +1,153 @@
+package com.asia.tokyo.controller;
+
+import com.asia.tokyo.config.ReactiveConfig;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.service.ReactiveCustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.asia.tokyo.controller.CustomerController.APPLICATION_NDJSON_VALUE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+@ActiveProfiles("reactive")
+@WebFluxTest(ReactiveCustomerController.class)
+@Import(ReactiveConfig.class)
+@DisplayName("Test ReactiveCustomerController")
+class ReactiveCustomerControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveCustomerService reactiveCustomerService;
+
+    private List<CustomerDto> customersDto;
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        customersDto = Arrays.asList(
+                CustomerDto.builder().id(UUID.randomUUID()).customerName("James Bond").tableNumber("10").build(),
+                CustomerDto.builder().id(UUID.randomUUID()).customerName("Marc Lee").tableNumber("2").build());
+    }
+
+    @Test
+    @DisplayName("Adding a new customer is responding status 201")
+    void adding_new_customer_is_responding_status_201() {
+        // GIVEN
+        CustomerDto customer = CustomerDto.builder().customerName("James Bond").tableNumber("10").build();
+        given(reactiveCustomerService.addCustomer(any(CustomerDto.class))).willReturn(Mono.just(customersDto.get(0)));
+
+        // WHEN THEN
+        webTestClient.post().uri("/api/customer/add")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(customer)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.id").isEqualTo(customersDto.get(0).getId().toString());
+    }
+
+    @Test
+    @DisplayName("Adding wrong data format for customer is responding status 400")
+    void adding_empty_customer_is_responding_status_400() {
+        // GIVEN WHEN THEN
+        webTestClient.post().uri("/api/customer/add")
+                .contentType(APPLICATION_JSON)
+                .bodyValue(CustomerDto.builder().build())
+                .exchange()
+                .expectStatus().isBadRequest();
+        verify(reactiveCustomerService, never()).addCustomer(any(CustomerDto.class));
+    }
+
+    @Test
+    @DisplayName("Getting an unknown customer is responding status 400")
+    void getting_unknown_customer_is_responding_status_400() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        given(reactiveCustomerService.findCustomerById(uuid)).willReturn(Mono.error(new CustomerException("This UUID is unknow.")));
+
+        // WHEN THEN
+        webTestClient.get().uri("/api/customer/get/{uuid}", uuid)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Getting all customers as NDJSON is responding one customer per line")
+    void getting_all_customers_as_ndjson_is_responding_one_customer_per_line() {
+        // GIVEN
+        given(reactiveCustomerService.findAll()).willReturn(Flux.fromIterable(customersDto));
+
+        // WHEN
+        String body = webTestClient.get().uri("/api/customer/export")
+                .accept(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        // THEN
+        String[] lines = body.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(true, lines[1].contains("Marc Lee"));
+    }
+
+    @Test
+    @DisplayName("Searching customers as JSON is responding an array")
+    void searching_customers_as_json_is_responding_array() {
+        // GIVEN
+        given(reactiveCustomerService.findAllByCustomerNameLike(any(String.class), isNull())).willReturn(Flux.fromIterable(customersDto));
+
+        // WHEN THEN
+        webTestClient.get().uri("/api/customer/all/{customerName}", "%e%")
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deleting a customer is responding status 204")
+    void deleting_customer_is_responding_status_204() {
+        // GIVEN
+        UUID uuid = customersDto.get(0).getId();
+        given(reactiveCustomerService.deleteCustomer(uuid)).willReturn(Mono.empty());
+
+        // WHEN THEN
+        webTestClient.delete().uri("/api/customer/delete/{uuid}", uuid)
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+}
@@ -0,0 +1,145 @@
+package com.asia.tokyo.controller.bulkhead;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.asia.tokyo.controller.bulkhead.CustomerBulkheads.Kind.POINT_READ;
+import static com.asia.tokyo.controller.bulkhead.CustomerBulkheads.Kind.SEARCH;
+import static com.asia.tokyo.controller.bulkhead.CustomerBulkheads.Kind.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test CustomerBulkheads")
+class CustomerBulkheadsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CustomerBulkheads customerBulkheads;
+
+    @BeforeEach
+    void setUp() {
+        CustomerProperties customerProperties = new CustomerProperties();
+        customerProperties.getBulkheads().getSearch().setThreads(1);
+        customerProperties.getBulkheads().getSearch().setQueueCapacity(1);
+        customerProperties.getBulkheads().getSearch().setTimeout(Duration.ofMillis(200));
+        customerProperties.getBulkheads().getWrite().setThreads(1);
+        customerProperties.getBulkheads().getWrite().setTimeout(Duration.ofMillis(200));
+        customerBulkheads = new CustomerBulkheads(customerProperties, meterRegistry, task -> task);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        customerBulkheads.shutdown();
+    }
+
+    @Test
+    @DisplayName("Supplying to a full bulkhead is failing fast and counting the rejection")
+    void supplying_to_full_bulkhead_is_failing_fast() throws Exception {
+        // GIVEN
+        customerBulkheads.supply(SEARCH, this::blocked);
+        customerBulkheads.supply(SEARCH, this::blocked);
+
+        // WHEN
+        CompletableFuture<String> rejected = customerBulkheads.supply(SEARCH, () -> "never");
+
+        // THEN
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof CustomerUnavailableException);
+        assertEquals(1, meterRegistry.get("tokyo.customer.bulkhead.rejected").tag("bulkhead", "search").counter().count());
+        assertEquals(1, meterRegistry.get("executor.queued").tag("name", "customer.search").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Supplying to a full bulkhead is leaving the other bulkheads serving")
+    void supplying_to_full_bulkhead_is_leaving_others_serving() throws Exception {
+        // GIVEN
+        customerBulkheads.supply(SEARCH, this::blocked);
+        customerBulkheads.supply(SEARCH, this::blocked);
+
+        // WHEN THEN
+        assertEquals("found", customerBulkheads.supply(POINT_READ, () -> "found").get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Supplying a slow request is ending it after the timeout")
+    void supplying_slow_request_is_ending_after_timeout() throws InterruptedException {
+        // GIVEN WHEN
+        CompletableFuture<String> slow = customerBulkheads.supply(SEARCH, this::blocked);
+
+        // THEN
+        ExecutionException e = assertThrows(ExecutionException.class, () -> slow.get(2, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof CustomerUnavailableException);
+        // The counter moves just after the future is completed.
+        for (int i = 0; i < 50 && meterRegistry.get("tokyo.customer.bulkhead.timeout").counter().count() == 0; i++)
+            Thread.sleep(10);
+        assertEquals(1, meterRegistry.get("tokyo.customer.bulkhead.timeout").tag("bulkhead", "search").counter().count());
+    }
+
+    @Test
+    @DisplayName("Answering in time is cancelling the timeout")
+    void answering_in_time_is_cancelling_timeout() throws Exception {
+        // WHEN
+        assertEquals("found", customerBulkheads.supply(POINT_READ, () -> "found").get(1, TimeUnit.SECONDS));
+
+        // THEN
+        assertEquals(0, customerBulkheads.pendingTimeouts());
+    }
+
+    @Test
+    @DisplayName("Supplying a slow write is waiting for it once started")
+    void supplying_slow_write_is_waiting_once_started() throws Exception {
+        // GIVEN
+        CompletableFuture<String> slow = customerBulkheads.supply(WRITE, this::blocked);
+
+        // WHEN
+        Thread.sleep(400);
+        release.countDown();
+
+        // THEN
+        assertEquals("released", slow.get(2, TimeUnit.SECONDS));
+        assertEquals(0, meterRegistry.get("tokyo.customer.bulkhead.timeout").tag("bulkhead", "write").counter().count());
+    }
+
+    @Test
+    @DisplayName("Supplying a write queued past the timeout is ending it without running it")
+    void supplying_write_queued_past_timeout_is_ending_without_running() throws Exception {
+        // GIVEN
+        customerBulkheads.supply(WRITE, this::blocked);
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<String> queued = customerBulkheads.supply(WRITE, () -> {
+            ran.set(true);
+            return "written";
+        });
+
+        // WHEN
+        ExecutionException e = assertThrows(ExecutionException.class, () -> queued.get(2, TimeUnit.SECONDS));
+        release.countDown();
+
+        // THEN
+        assertTrue(e.getCause() instanceof CustomerUnavailableException);
+        Thread.sleep(100);
+        assertFalse(ran.get());
+    }
+
+    private String blocked() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+}
@@ -0,0 +1,201 @@
+package com.asia.tokyo.controller.changes;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.controller.mapper.DateMapper;
+import com.asia.tokyo.controller.model.CustomerChange;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test CustomerChangeFeed")
+class CustomerChangeFeedTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CustomerProperties customerProperties = new CustomerProperties();
+
+    @BeforeEach
+    void setUp() {
+        customerProperties.getChanges().setReplaySize(3);
+        customerProperties.getChanges().setSubscriberQueue(2);
+    }
+
+    @Test
+    @DisplayName("A subscriber is receiving the changes in order with their version")
+    void subscriber_is_receiving_changes_in_order() {
+        // GIVEN
+        CustomerChangeFeed feed = feed(Runnable::run);
+        RecordingSink sink = new RecordingSink();
+        feed.register(feed.new Subscriber(sink), null);
+        UUID id = UUID.randomUUID();
+
+        // WHEN
+        feed.onCustomerChanged(CustomerChangedEvent.created(Customer.builder().id(id).version(0L).customerName("James Bond").tableNumber("10").build()));
+        feed.onCustomerChanged(CustomerChangedEvent.updated(Customer.builder().id(id).version(1L).tableNumber("12").build()));
+
+        // THEN
+        assertEquals(2, sink.entries.size());
+        assertTrue(sink.entries.get(0).id.endsWith("-1"));
+        assertTrue(sink.entries.get(1).id.endsWith("-2"));
+        CustomerChange update = (CustomerChange) sink.entries.get(1).data;
+        assertEquals("UPDATED", update.getType());
+        assertEquals(1L, update.getVersion());
+        assertNull(update.getCustomerName());
+        assertEquals("12", update.getTableNumber());
+    }
+
+    @Test
+    @DisplayName("Resuming from a Last-Event-ID is replaying only the missed changes")
+    void resuming_is_replaying_missed_changes() {
+        // GIVEN
+        CustomerChangeFeed feed = feed(Runnable::run);
+        RecordingSink first = new RecordingSink();
+        feed.register(feed.new Subscriber(first), null);
+        feed.onCustomerChanged(CustomerChangedEvent.deleted(UUID.randomUUID()));
+        String lastEventId = first.entries.get(0).id;
+        feed.onCustomerChanged(CustomerChangedEvent.deleted(UUID.randomUUID()));
+        feed.onCustomerChanged(CustomerChangedEvent.deleted(UUID.randomUUID()));
+
+        // WHEN
+        RecordingSink resumed = new RecordingSink();
+        feed.register(feed.new Subscriber(resumed), lastEventId);
+
+        // THEN
+        assertEquals(ids(first).subList(1, 3), ids(resumed));
+    }
+
+    @Test
+    @DisplayName("Resuming from an unknown or evicted Last-Event-ID is sending a reset")
+    void resuming_from_unknown_id_is_sending_reset() {
+        // GIVEN
+        CustomerChangeFeed feed = feed(Runnable::run);
+        RecordingSink first = new RecordingSink();
+        feed.register(feed.new Subscriber(first), null);
+        for (int i = 0; i < 5; i++)
+            feed.onCustomerChanged(CustomerChangedEvent.deleted(UUID.randomUUID()));
+
+        // WHEN
+        RecordingSink evicted = new RecordingSink();
+        feed.register(feed.new Subscriber(evicted), first.entries.get(0).id);
+        RecordingSink unknown = new RecordingSink();
+        feed.register(feed.new Subscriber(unknown), "before-restart-3");
+
+        // THEN
+        for (RecordingSink sink : List.of(evicted, unknown)) {
+            assertEquals(1, sink.entries.size());
+            assertEquals(CustomerChangeFeed.RESET, sink.entries.get(0).name);
+            assertEquals(first.entries.get(4).id, sink.entries.get(0).id);
+        }
+    }
+
+    @Test
+    @DisplayName("A subscriber not keeping up is disconnected instead of buffering")
+    void slow_subscriber_is_disconnected() {
+        // GIVEN
+        List<Runnable> neverRun = new ArrayList<>();
+        CustomerChangeFeed feed = feed(neverRun::add);
+        RecordingSink slow = new RecordingSink();
+        feed.register(feed.new Subscriber(slow), null);
+
+        // WHEN
+        for (int i = 0; i < 3; i++)
+            feed.onCustomerChanged(CustomerChangedEvent.deleted(UUID.randomUUID()));
+
+        // THEN
+        assertTrue(slow.closed);
+        assertEquals(1.0, meterRegistry.counter("tokyo.customer.changes.dropped").count());
+        assertEquals(0.0, meterRegistry.get("tokyo.customer.changes.subscribers").gauge().value());
+    }
+
+    @Test
+    @DisplayName("An idle subscriber is receiving a heartbeat")
+    void idle_subscriber_is_receiving_heartbeat() {
+        // GIVEN
+        CustomerChangeFeed feed = feed(Runnable::run);
+        RecordingSink sink = new RecordingSink();
+        feed.register(feed.new Subscriber(sink), null);
+
+        // WHEN
+        feed.heartbeat();
+
+        // THEN
+        assertEquals(Collections.singletonList(CustomerChangeFeed.HEARTBEAT), sink.entries);
+        assertFalse(sink.closed);
+    }
+
+    @Test
+    @DisplayName("A subscriber blocked in a send is disconnected, its stream closed once the send returns")
+    void stalled_subscriber_is_disconnected() throws Exception {
+        // GIVEN
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink blocked = new RecordingSink() {
+            @Override
+            public void send(CustomerChangeFeed.Entry entry) {
+                sending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CustomerChangeFeed feed = feed(executor);
+        feed.register(feed.new Subscriber(blocked), null);
+        feed.onCustomerChanged(CustomerChangedEvent.deleted(UUID.randomUUID()));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // WHEN
+        feed.closeStalled(System.nanoTime());
+        feed.closeStalled(System.nanoTime() + customerProperties.getChanges().getSendTimeout().toNanos() + 1);
+
+        // THEN
+        assertEquals(1.0, meterRegistry.counter("tokyo.customer.changes.dropped").count());
+        assertEquals(0.0, meterRegistry.get("tokyo.customer.changes.subscribers").gauge().value());
+        assertFalse(blocked.closed);
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(blocked.closed);
+    }
+
+    private CustomerChangeFeed feed(Executor executor) {
+        return new CustomerChangeFeed(customerProperties, new DateMapper(), meterRegistry, executor);
+    }
+
+    private static List<String> ids(RecordingSink sink) {
+        return sink.entries.stream().map(entry -> entry.id).collect(Collectors.toList());
+    }
+
+    private static class RecordingSink implements CustomerChangeFeed.Sink {
+        private final List<CustomerChangeFeed.Entry> entries = new ArrayList<>();
+        private volatile boolean closed;
+
+        @Override
+        public void send(CustomerChangeFeed.Entry entry) {
+            entries.add(entry);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
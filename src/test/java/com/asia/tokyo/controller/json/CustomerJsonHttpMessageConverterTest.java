@@ -0,0 +1,145 @@
+package com.asia.tokyo.controller.json;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test CustomerJsonHttpMessageConverter")
+class CustomerJsonHttpMessageConverterTest {
+
+    private static final OffsetDateTime DATE = OffsetDateTime.of(2020, 7, 1, 12, 30, 0, 0, ZoneOffset.UTC);
+    private static final TypeReference<List<CustomerDto>> LIST = new TypeReference<List<CustomerDto>>() {
+    };
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CustomerProperties customerProperties = new CustomerProperties();
+
+    @Test
+    @DisplayName("Writing a customer twice is encoding it once")
+    void writing_customer_twice_is_encoding_once() throws IOException {
+        // GIVEN
+        CustomerJsonHttpMessageConverter converter = converter();
+        CustomerDto customer = customer(UUID.randomUUID(), 1, "James Bond");
+
+        // WHEN
+        String first = write(converter, customer, CustomerDto.class);
+        String second = write(converter, customer, CustomerDto.class);
+
+        // THEN
+        assertEquals(objectMapper.writeValueAsString(customer), first);
+        assertEquals(first, second);
+        assertEquals(1.0, hits());
+    }
+
+    @Test
+    @DisplayName("Writing a list is joining the cached customers")
+    void writing_list_is_joining_cached_customers() throws IOException {
+        // GIVEN
+        CustomerJsonHttpMessageConverter converter = converter();
+        List<CustomerDto> customers = Arrays.asList(customer(UUID.randomUUID(), 0, "James Bond"), customer(UUID.randomUUID(), 4, "Marc Lee"));
+        write(converter, customers.get(1), CustomerDto.class);
+
+        // WHEN
+        String json = write(converter, customers, LIST.getType());
+
+        // THEN
+        assertEquals(customers, objectMapper.readValue(json, LIST));
+        assertEquals(1.0, hits());
+    }
+
+    @Test
+    @DisplayName("Writing a new version or a partial customer is encoding it again")
+    void writing_new_version_or_partial_customer_is_encoding_again() throws IOException {
+        // GIVEN
+        customerProperties.getJsonCache().setOffHeap(true);
+        CustomerJsonHttpMessageConverter converter = converter();
+        UUID id = UUID.randomUUID();
+        write(converter, customer(id, 1, "James Bond"), CustomerDto.class);
+
+        // WHEN
+        CustomerDto renamed = customer(id, 2, "James Bond Jr");
+        String json = write(converter, renamed, CustomerDto.class);
+        CustomerDto patched = CustomerDto.builder().id(id).version(3).customerName("Patched name").build();
+        String partial = write(converter, patched, CustomerDto.class);
+        String again = write(converter, renamed, CustomerDto.class);
+
+        // THEN
+        assertEquals(objectMapper.writeValueAsString(renamed), json);
+        assertEquals(objectMapper.writeValueAsString(patched), partial);
+        assertEquals(json, again);
+        assertEquals(1.0, hits());
+    }
+
+    @Test
+    @DisplayName("Deleting a customer is dropping its JSON")
+    void deleting_customer_is_dropping_its_json() throws IOException {
+        // GIVEN
+        CustomerJsonHttpMessageConverter converter = converter();
+        UUID id = UUID.randomUUID();
+        write(converter, customer(id, 1, "James Bond"), CustomerDto.class);
+
+        // WHEN
+        converter.onCustomerChanged(CustomerChangedEvent.deleted(id));
+        converter.onCustomerChanged(CustomerChangedEvent.updated(Customer.builder().id(UUID.randomUUID()).version(9L).build()));
+        write(converter, customer(id, 1, "James Bond"), CustomerDto.class);
+
+        // THEN
+        assertEquals(0.0, hits());
+    }
+
+    @Test
+    @DisplayName("Only the customers and their collections are written, never read")
+    void only_customers_are_written() {
+        CustomerJsonHttpMessageConverter converter = converter();
+
+        assertTrue(converter.canWrite(LIST.getType(), List.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(new TypeReference<Set<String>>() {
+        }.getType(), Set.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(CustomerDto.class, CustomerDto.class, MediaType.APPLICATION_CBOR));
+        assertFalse(converter.canRead(CustomerDto.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canRead(LIST.getType(), null, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(String.class, MediaType.APPLICATION_JSON));
+    }
+
+    private CustomerJsonHttpMessageConverter converter() {
+        return new CustomerJsonHttpMessageConverter(customerProperties, objectMapper, meterRegistry);
+    }
+
+    private static String write(CustomerJsonHttpMessageConverter converter, Object body, java.lang.reflect.Type type) throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(body, type, MediaType.APPLICATION_JSON, outputMessage);
+        return outputMessage.getBodyAsString();
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", CustomerJsonHttpMessageConverter.NAME).tag("result", "hit").functionCounter().count();
+    }
+
+    private static CustomerDto customer(UUID id, int version, String customerName) {
+        return CustomerDto.builder().id(id).version(version).createdDate(DATE).lastModifiedDate(DATE)
+                .customerName(customerName).tableNumber("10").build();
+    }
+}
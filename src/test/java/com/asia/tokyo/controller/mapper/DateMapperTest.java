@@ -0,0 +1,52 @@
+package com.asia.tokyo.controller.mapper;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test DateMapper")
+class DateMapperTest {
+
+    private final DateMapper dateMapper = new DateMapper();
+
+    @Test
+    @DisplayName("Mapping a timestamp is giving its wall-clock time at UTC")
+    void mapping_timestamp_is_giving_wall_clock_time_at_utc() {
+        // GIVEN
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.of(2020, 3, 29, 2, 30, 15, 123456789));
+
+        // WHEN
+        OffsetDateTime offsetDateTime = dateMapper.asOffsetDateTime(timestamp);
+
+        // THEN
+        assertEquals(OffsetDateTime.of(timestamp.toLocalDateTime(), ZoneOffset.UTC), offsetDateTime);
+        assertEquals(123456789, offsetDateTime.getNano());
+        assertEquals(timestamp, dateMapper.asTimestamp(offsetDateTime));
+    }
+
+    @Test
+    @DisplayName("Mapping a date with an offset is giving the timestamp of the same instant at UTC")
+    void mapping_date_with_offset_is_giving_timestamp_at_utc() {
+        // GIVEN
+        OffsetDateTime offsetDateTime = OffsetDateTime.of(2020, 7, 1, 10, 0, 0, 500, ZoneOffset.ofHours(9));
+
+        // WHEN
+        Timestamp timestamp = dateMapper.asTimestamp(offsetDateTime);
+
+        // THEN
+        assertEquals(Timestamp.valueOf(LocalDateTime.of(2020, 7, 1, 1, 0, 0, 500)), timestamp);
+    }
+
+    @Test
+    @DisplayName("Mapping null is giving null")
+    void mapping_null_is_giving_null() {
+        assertNull(dateMapper.asOffsetDateTime(null));
+        assertNull(dateMapper.asTimestamp(null));
+    }
+}
@@ -0,0 +1,82 @@
+package com.asia.tokyo.domain.id;
+
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.domain.CustomerOutbox;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.dialect.MySQL57Dialect;
+import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.tool.schema.TargetType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Test EntityIdTypeContributor")
+class EntityIdTypeContributorTest {
+
+    private static final Pattern CUSTOMER_ID = Pattern.compile("create table Customer \\(id (\\w+\\(\\d+\\))");
+    private static final Pattern OUTBOX_IDS = Pattern.compile("create table CustomerOutbox \\(id (\\w+\\(\\d+\\)).*customerId (\\w+\\(\\d+\\))");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Storing the ids as text is sizing their column to 36 characters")
+    void storing_ids_as_char_is_sizing_column_to_36() throws IOException {
+        // WHEN THEN
+        assertEquals("varchar(36)", customerIdColumn("char"));
+    }
+
+    @Test
+    @DisplayName("Storing the ids as binary is sizing their column to 16 bytes")
+    void storing_ids_as_binary_is_sizing_column_to_16() throws IOException {
+        // WHEN THEN
+        assertEquals("binary(16)", customerIdColumn("binary"));
+    }
+
+    @Test
+    @DisplayName("Storing the ids as binary is sizing the outbox id columns to 16 bytes")
+    void storing_ids_as_binary_is_sizing_outbox_columns_to_16() throws IOException {
+        // WHEN
+        Matcher matcher = schema("binary", OUTBOX_IDS);
+
+        // THEN
+        assertEquals("binary(16)", matcher.group(1));
+        assertEquals("binary(16)", matcher.group(2));
+    }
+
+    private String customerIdColumn(String storage) throws IOException {
+        return schema(storage, CUSTOMER_ID).group(1);
+    }
+
+    private Matcher schema(String storage, Pattern table) throws IOException {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", MySQL57Dialect.class.getName())
+                .applySetting("hibernate.temp.use_jdbc_metadata_defaults", "false")
+                .applySetting(EntityIdTypeContributor.STORAGE_SETTING, storage)
+                .build();
+        try {
+            Metadata metadata = new MetadataSources(registry).addAnnotatedClass(Customer.class)
+                    .addAnnotatedClass(CustomerOutbox.class).buildMetadata();
+            Path script = directory.resolve(storage + ".sql");
+            new SchemaExport().setOutputFile(script.toString()).setDelimiter(";").createOnly(EnumSet.of(TargetType.SCRIPT), metadata);
+            Matcher matcher = table.matcher(new String(Files.readAllBytes(script)));
+            assertTrue(matcher.find(), "no such table in the script");
+            return matcher;
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registry);
+        }
+    }
+}
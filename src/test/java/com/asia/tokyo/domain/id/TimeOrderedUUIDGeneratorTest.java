@@ -0,0 +1,47 @@
+package com.asia.tokyo.domain.id;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test TimeOrderedUUIDGenerator")
+class TimeOrderedUUIDGeneratorTest {
+
+    @Test
+    @DisplayName("Generating an id is giving a version 7 UUID stamped with the current time")
+    void generating_id_is_giving_version_7_uuid() {
+        // GIVEN
+        long before = System.currentTimeMillis();
+
+        // WHEN
+        UUID uuid = TimeOrderedUUIDGenerator.next();
+
+        // THEN
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1);
+    }
+
+    @Test
+    @DisplayName("Generating ids in a burst is giving unique ids growing as text and as binary")
+    void generating_ids_in_burst_is_giving_growing_ids() {
+        // GIVEN
+        Set<UUID> seen = new HashSet<>();
+        UUID previous = TimeOrderedUUIDGenerator.next();
+
+        // WHEN THEN
+        for (int i = 0; i < 100_000; i++) {
+            UUID uuid = TimeOrderedUUIDGenerator.next();
+            assertTrue(seen.add(uuid));
+            assertTrue(uuid.toString().compareTo(previous.toString()) > 0);
+            assertTrue(Long.compareUnsigned(uuid.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = uuid;
+        }
+    }
+}
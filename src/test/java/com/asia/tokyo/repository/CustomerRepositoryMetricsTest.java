@@ -0,0 +1,58 @@
+package com.asia.tokyo.repository;
+
+import com.asia.tokyo.domain.Customer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+@Import(CustomerRepositoryMetrics.class)
+@DisplayName("Test CustomerRepositoryMetrics")
+class CustomerRepositoryMetricsTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    @DisplayName("Searching customers is timing the call and recording the number of rows")
+    void searching_customers_is_timing_call_and_recording_rows() {
+        // GIVEN
+        customerRepository.saveAll(Arrays.asList(
+                Customer.builder().customerName("James Bond").tableNumber("10").build(),
+                Customer.builder().customerName("James Dean").tableNumber("2").build(),
+                Customer.builder().customerName("Anna Smith").tableNumber("5").build()));
+
+        // WHEN
+        customerRepository.findAllByCustomerNameLike("James%");
+
+        // THEN
+        assertEquals(1, meterRegistry.get(CustomerRepositoryMetrics.TIMER)
+                .tag("method", "findAllByCustomerNameLike").tag("exception", "none").timer().count());
+        assertEquals(2, meterRegistry.get(CustomerRepositoryMetrics.RESULTS)
+                .tag("method", "findAllByCustomerNameLike").summary().totalAmount());
+    }
+}
@@ -0,0 +1,92 @@
+package com.asia.tokyo.repository;
+
+import com.asia.tokyo.domain.Customer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@DisplayName("Test CustomerRepository")
+class CustomerRepositoryTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    @DisplayName("Deleting by id is answering the number of deleted rows")
+    void deleting_by_id_is_answering_deleted_rows() {
+        // GIVEN
+        Customer customer = customerRepository.save(Customer.builder().customerName("James Bond").tableNumber("10").build());
+
+        // WHEN THEN
+        assertEquals(0, customerRepository.deleteByIdReturningCount(UUID.randomUUID()));
+        assertEquals(1, customerRepository.deleteByIdReturningCount(customer.getId()));
+        assertFalse(customerRepository.existsById(customer.getId()));
+    }
+
+    @Test
+    @DisplayName("Deleting by id and version is keeping a customer at another version")
+    void deleting_by_id_and_version_is_keeping_other_version() {
+        // GIVEN
+        Customer customer = customerRepository.save(Customer.builder().customerName("James Bond").tableNumber("10").build());
+        long version = customer.getVersion();
+
+        // WHEN THEN
+        assertEquals(0, customerRepository.deleteByIdAndVersion(customer.getId(), version + 1));
+        assertTrue(customerRepository.existsById(customer.getId()));
+        assertEquals(1, customerRepository.deleteByIdAndVersion(customer.getId(), version));
+        assertFalse(customerRepository.existsById(customer.getId()));
+    }
+
+    @Test
+    @DisplayName("Deleting by ids is deleting the known ones in one statement")
+    void deleting_by_ids_is_deleting_known_ones() {
+        // GIVEN
+        Customer customer1 = customerRepository.save(Customer.builder().customerName("James Bond").tableNumber("10").build());
+        Customer customer2 = customerRepository.save(Customer.builder().customerName("James Dean").tableNumber("2").build());
+        Customer customer3 = customerRepository.save(Customer.builder().customerName("Anna Smith").tableNumber("5").build());
+
+        // WHEN
+        int deleted = customerRepository.deleteByIdIn(Arrays.asList(customer1.getId(), customer2.getId(), UUID.randomUUID()));
+
+        // THEN
+        assertEquals(2, deleted);
+        assertEquals(1, customerRepository.count());
+        assertTrue(customerRepository.existsById(customer3.getId()));
+    }
+
+    @Test
+    @DisplayName("Updating partially is changing the given column and the version only")
+    void updating_partially_is_changing_given_column_and_version() {
+        // GIVEN
+        Customer customer = customerRepository.save(Customer.builder().customerName("James Bond").tableNumber("10").build());
+        long version = customer.getVersion();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+
+        // WHEN
+        int stale = customerRepository.updatePartially(customer.getId(), version + 1, null, "8", now);
+        int updated = customerRepository.updatePartially(customer.getId(), version, null, "8", now);
+        entityManager.clear();
+
+        // THEN
+        assertEquals(0, stale);
+        assertEquals(1, updated);
+        Customer found = customerRepository.findById(customer.getId()).orElseThrow(IllegalStateException::new);
+        assertEquals("James Bond", found.getCustomerName());
+        assertEquals("8", found.getTableNumber());
+        assertEquals(version + 1, found.getVersion());
+    }
+}
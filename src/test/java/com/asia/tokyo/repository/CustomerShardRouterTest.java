@@ -0,0 +1,394 @@
+package com.asia.tokyo.repository;
+
+import com.asia.tokyo.config.datasource.ShardRoutingDataSource;
+import com.asia.tokyo.controller.model.CustomerBulkDeleteResult;
+import com.asia.tokyo.controller.model.CustomerBulkResult;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerPagedList;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.domain.id.TimeOrderedUUIDGenerator;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import com.asia.tokyo.service.CustomerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Three H2 databases stand in for the shards.
+ */
+@SpringBootTest(properties = {
+        "tokyo.datasource.sharding.enabled=true",
+        "tokyo.datasource.sharding.timeout=3s",
+        "tokyo.datasource.shards[0].jdbc-url=jdbc:h2:mem:shard-0;DB_CLOSE_DELAY=-1",
+        "tokyo.datasource.shards[1].jdbc-url=jdbc:h2:mem:shard-1;DB_CLOSE_DELAY=-1",
+        "tokyo.datasource.shards[2].jdbc-url=jdbc:h2:mem:shard-2;DB_CLOSE_DELAY=-1"})
+@DisplayName("Test CustomerShardRouter")
+class CustomerShardRouterTest {
+
+    private static final int SHARDS = 3;
+
+    private static final List<JdbcTemplate> SHARD_DATABASES = IntStream.range(0, SHARDS)
+            .mapToObj(shard -> new JdbcTemplate(new SimpleDriverDataSource(new org.h2.Driver(), "jdbc:h2:mem:shard-" + shard + ";DB_CLOSE_DELAY=-1")))
+            .collect(Collectors.toList());
+
+    /** The same customers in one database, for the order a single database gives. */
+    private static final JdbcTemplate SINGLE_DATABASE =
+            new JdbcTemplate(new SimpleDriverDataSource(new org.h2.Driver(), "jdbc:h2:mem:single;DB_CLOSE_DELAY=-1"));
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ShardRoutingDataSource dataSource;
+
+    @TestConfiguration
+    static class ShardSchemas {
+
+        /**
+         * Hibernate creates the schema on the first shard only, before the customers are first read.
+         */
+        @Bean
+        InitializingBean shardSchemas(EntityManagerFactory entityManagerFactory) {
+            return () -> {
+                List<String> script = SHARD_DATABASES.get(0).queryForList("SCRIPT NODATA", String.class);
+                for (int shard = 1; shard < SHARDS; shard++) {
+                    SHARD_DATABASES.get(shard).execute("DROP ALL OBJECTS");
+                    script.forEach(SHARD_DATABASES.get(shard)::execute);
+                }
+                SINGLE_DATABASE.execute("DROP ALL OBJECTS");
+                script.forEach(SINGLE_DATABASE::execute);
+            };
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        SHARD_DATABASES.forEach(shard -> shard.update("DELETE FROM customer"));
+        SINGLE_DATABASE.update("DELETE FROM customer");
+    }
+
+    @Test
+    @DisplayName("Hashing ids is spreading them evenly over the shards")
+    void hashing_ids_is_spreading_them_evenly() {
+        // GIVEN
+        int[] counts = new int[SHARDS];
+
+        // WHEN
+        for (int i = 0; i < 30000; i++)
+            counts[CustomerShardRouter.shardOf(TimeOrderedUUIDGenerator.next(), SHARDS)]++;
+
+        // THEN
+        for (int count : counts)
+            assertTrue(count > 9000 && count < 11000, "unbalanced shards " + Arrays.toString(counts));
+    }
+
+    @Test
+    @DisplayName("Adding customers is writing each one to the shard of its id")
+    void adding_customers_is_writing_each_to_its_shard() {
+        // WHEN
+        List<CustomerDto> added = addCustomers(30);
+
+        // THEN
+        for (CustomerDto customer : added) {
+            int shard = CustomerShardRouter.shardOf(customer.getId(), SHARDS);
+            for (int other = 0; other < SHARDS; other++)
+                assertEquals(other == shard ? 1 : 0, SHARD_DATABASES.get(other)
+                        .queryForObject("SELECT COUNT(*) FROM customer WHERE id = ?", Integer.class, customer.getId()));
+        }
+        SHARD_DATABASES.forEach(shard -> assertTrue(shard.queryForObject("SELECT COUNT(*) FROM customer", Integer.class) > 0));
+    }
+
+    @Test
+    @DisplayName("Finding, updating and deleting a customer is going to its shard")
+    void finding_updating_deleting_customer_is_going_to_its_shard() {
+        // GIVEN
+        CustomerDto added = addCustomers(1).get(0);
+
+        // WHEN
+        CustomerDto updated = customerService.patchCustomer(added.getId(), added.getVersion(), CustomerDto.builder().tableNumber("9").build());
+
+        // THEN
+        assertEquals("9", customerService.findCustomerById(added.getId()).getTableNumber());
+        assertEquals("9", SHARD_DATABASES.get(CustomerShardRouter.shardOf(added.getId(), SHARDS))
+                .queryForObject("SELECT table_number FROM customer WHERE id = ?", String.class, added.getId()));
+        customerService.deleteCustomer(added.getId(), updated.getVersion());
+        SHARD_DATABASES.forEach(shard -> assertEquals(0, shard.queryForObject("SELECT COUNT(*) FROM customer", Integer.class)));
+    }
+
+    @Test
+    @DisplayName("Listing and searching customers is merging every shard")
+    void listing_and_searching_is_merging_every_shard() {
+        // GIVEN
+        addCustomers(20);
+
+        // WHEN THEN
+        assertEquals(20, customerService.findAll().size());
+        assertEquals(10, customerService.findAllByCustomerNameLike("James%").size());
+        assertEquals(4, customerService.findAllByCustomerNameLike("James%", 4).size());
+    }
+
+    @Test
+    @DisplayName("Exporting customers is streaming every shard")
+    void exporting_customers_is_streaming_every_shard() {
+        // GIVEN
+        List<UUID> ids = addCustomers(20).stream().map(CustomerDto::getId).collect(Collectors.toList());
+        List<UUID> exported = new ArrayList<>();
+
+        // WHEN
+        customerService.exportAll(customer -> exported.add(customer.getId()));
+
+        // THEN
+        assertEquals(20, exported.size());
+        assertTrue(exported.containsAll(ids));
+    }
+
+    @Test
+    @DisplayName("Paging customers is merging the shards in the order of their creation")
+    void paging_customers_is_merging_shards_in_order() {
+        // GIVEN
+        List<UUID> ids = addCustomers(12).stream().map(CustomerDto::getId).collect(Collectors.toList());
+        List<UUID> paged = new ArrayList<>();
+
+        // WHEN
+        CustomerPagedList page = customerService.findPage(null, 5, "asc");
+        page.getContent().forEach(customer -> paged.add(customer.getId()));
+        while (page.getNextCursor() != null) {
+            page = customerService.findPage(page.getNextCursor(), 5, "asc");
+            page.getContent().forEach(customer -> paged.add(customer.getId()));
+        }
+
+        // THEN
+        assertEquals(ids, paged);
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Paging customers with an offset and a sort is merging the shards in that order")
+    void paging_with_offset_and_sort_is_merging_shards_in_order() {
+        // GIVEN
+        List<String> names = addCustomers(12).stream().map(CustomerDto::getCustomerName).sorted().collect(Collectors.toList());
+
+        // WHEN
+        Page<Customer> page = customerRepository.findAll(PageRequest.of(1, 4, Sort.by("customerName")));
+        Iterable<Customer> all = customerRepository.findAll(Sort.by(Sort.Direction.DESC, "customerName"));
+
+        // THEN
+        assertEquals(names.subList(4, 8), page.getContent().stream().map(Customer::getCustomerName).collect(Collectors.toList()));
+        assertEquals(12, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        List<String> descending = new ArrayList<>();
+        all.forEach(customer -> descending.add(customer.getCustomerName()));
+        Collections.reverse(names);
+        assertEquals(names, descending);
+    }
+
+    @Test
+    @DisplayName("Paging customers created at the same time is breaking the tie on their ids as a single database")
+    void paging_customers_created_together_is_ordering_ids_as_single_database() {
+        // GIVEN ids on both sides of the sign bit, created at the same time
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        for (int i = 0; i < 16; i++) {
+            UUID id = new UUID((long) i << 60 | ThreadLocalRandom.current().nextLong() >>> 4, ThreadLocalRandom.current().nextLong());
+            for (JdbcTemplate database : Arrays.asList(SHARD_DATABASES.get(CustomerShardRouter.shardOf(id, SHARDS)), SINGLE_DATABASE))
+                database.update("INSERT INTO customer (id, version, created_date, last_modified_date, customer_name, table_number) "
+                        + "VALUES (?, 0, ?, ?, ?, '1')", id.toString(), now, now, "James Bond " + i);
+        }
+        List<UUID> single = SINGLE_DATABASE.queryForList("SELECT id FROM customer ORDER BY created_date, id", String.class)
+                .stream().map(UUID::fromString).collect(Collectors.toList());
+        List<UUID> paged = new ArrayList<>();
+
+        // WHEN
+        CustomerPagedList page = customerService.findPage(null, 5, "asc");
+        page.getContent().forEach(customer -> paged.add(customer.getId()));
+        while (page.getNextCursor() != null) {
+            page = customerService.findPage(page.getNextCursor(), 5, "asc");
+            page.getContent().forEach(customer -> paged.add(customer.getId()));
+        }
+
+        // THEN
+        assertEquals(single, paged);
+    }
+
+    @Test
+    @DisplayName("Ordering ids is following their binary storage")
+    void ordering_ids_is_following_binary_storage() {
+        // GIVEN
+        SINGLE_DATABASE.execute("CREATE TABLE binary_id (id BINARY(16))");
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 16; i++)
+            ids.add(new UUID((long) i << 60 | ThreadLocalRandom.current().nextLong() >>> 4, ThreadLocalRandom.current().nextLong()));
+
+        try {
+            ids.forEach(id -> SINGLE_DATABASE.update("INSERT INTO binary_id VALUES (?)", (Object) toBytes(id)));
+
+            // WHEN
+            List<UUID> stored = SINGLE_DATABASE.queryForList("SELECT id FROM binary_id ORDER BY id", byte[].class)
+                    .stream().map(CustomerShardRouterTest::toUUID).collect(Collectors.toList());
+
+            // THEN
+            ids.sort(CustomerShardRouter.STORED_ID_ORDER);
+            assertEquals(stored, ids);
+        } finally {
+            SINGLE_DATABASE.execute("DROP TABLE binary_id");
+        }
+    }
+
+    @Test
+    @DisplayName("Adding customers in bulk is only retrying the part of the shard that refused it")
+    void adding_customers_in_bulk_is_only_retrying_refused_shard() {
+        // GIVEN
+        List<CustomerDto> customers = new ArrayList<>();
+        for (int i = 0; i < 12; i++)
+            customers.add(CustomerDto.builder().customerName(i == 5 ? "Broken Customer" : "James Bond " + i).tableNumber("1").build());
+        // Refused by the shard the customer falls on, the others commit their part.
+        SHARD_DATABASES.forEach(shard -> shard.execute("ALTER TABLE customer ADD CONSTRAINT broken CHECK (customer_name <> 'Broken Customer')"));
+
+        try {
+            // WHEN
+            CustomerBulkResult result = customerService.addCustomers(customers.iterator());
+
+            // THEN
+            assertEquals(11, result.getCreated());
+            assertEquals(1, result.getFailed());
+            assertEquals(5, result.getFailures().get(0).getIndex());
+            List<String> stored = new ArrayList<>();
+            SHARD_DATABASES.forEach(shard -> stored.addAll(shard.queryForList("SELECT customer_name FROM customer", String.class)));
+            assertEquals(11, stored.size());
+            assertEquals(11, new HashSet<>(stored).size());
+        } finally {
+            SHARD_DATABASES.forEach(shard -> shard.execute("ALTER TABLE customer DROP CONSTRAINT broken"));
+        }
+    }
+
+    @Test
+    @DisplayName("Deleting customers in bulk is locking and deleting them on their shards")
+    void deleting_customers_in_bulk_is_deleting_on_their_shards() {
+        // GIVEN
+        List<UUID> ids = addCustomers(12).stream().map(CustomerDto::getId).collect(Collectors.toList());
+        ids.add(TimeOrderedUUIDGenerator.next());
+
+        // WHEN
+        CustomerBulkDeleteResult result = customerService.deleteCustomers(ids);
+
+        // THEN
+        assertEquals(12, result.getDeleted());
+        assertEquals(1, result.getMissing());
+        SHARD_DATABASES.forEach(shard -> assertEquals(0, shard.queryForObject("SELECT COUNT(*) FROM customer", Integer.class)));
+    }
+
+    @Test
+    @DisplayName("Checking the schema is failing on a shard without the tables")
+    void checking_schema_is_failing_on_shard_without_tables() {
+        // GIVEN
+        SHARD_DATABASES.get(1).execute("CREATE TABLE shard_only (id INT)");
+
+        try {
+            // WHEN
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> dataSource.checkTables(Arrays.asList("customer", "shard_only")));
+
+            // THEN
+            assertTrue(e.getMessage().contains("[shard_only on shard-0, shard_only on shard-2]"), e.getMessage());
+        } finally {
+            SHARD_DATABASES.get(1).execute("DROP TABLE shard_only");
+        }
+    }
+
+    @Test
+    @DisplayName("Listing customers is failing when a shard answers too late")
+    void listing_customers_is_failing_when_shard_is_late() {
+        // GIVEN
+        addCustomers(3);
+        double timeouts = meterRegistry.counter(CustomerShardRouter.TIMEOUTS, "shard", "2").count();
+        SHARD_DATABASES.get(2).execute("CREATE TRIGGER slow BEFORE SELECT ON customer CALL \"" + SlowShard.class.getName() + "\"");
+
+        try {
+            // WHEN THEN
+            assertThrows(CustomerUnavailableException.class, () -> customerService.findAll());
+            assertEquals(timeouts + 1, meterRegistry.counter(CustomerShardRouter.TIMEOUTS, "shard", "2").count());
+        } finally {
+            SHARD_DATABASES.get(2).execute("DROP TRIGGER slow");
+        }
+    }
+
+    private static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    private static UUID toUUID(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Created in order: James 0, Anna 1, James 2...
+     */
+    private List<CustomerDto> addCustomers(int count) {
+        List<CustomerDto> added = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            added.add(customerService.addCustomer(CustomerDto.builder()
+                    .customerName((i % 2 == 0 ? "James " : "Anna ") + i).tableNumber(Integer.toString(i % 10 + 1)).build()));
+        return added;
+    }
+
+    public static class SlowShard implements Trigger {
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before, int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void remove() {
+        }
+    }
+}
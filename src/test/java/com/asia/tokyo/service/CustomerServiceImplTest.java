@@ -1,21 +1,62 @@
 package com.asia.tokyo.service;
 
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.config.datasource.DataSourceRoute;
 import com.asia.tokyo.controller.mapper.CustomerMapper;
+import com.asia.tokyo.controller.model.CustomerBulkDeleteResult;
+import com.asia.tokyo.controller.model.CustomerBulkResult;
 import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.controller.model.CustomerLookupResult;
+import com.asia.tokyo.controller.model.CustomerPagedList;
+import com.asia.tokyo.controller.model.CustomerSnapshot;
 import com.asia.tokyo.domain.Customer;
 import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import com.asia.tokyo.exception.CustomerVersionConflictException;
 import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.cache.CustomerCache;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import com.asia.tokyo.service.occupancy.TableOccupancy;
+import com.asia.tokyo.service.projection.CustomerReadModel;
+import com.asia.tokyo.service.search.CustomerNameIndex;
+import com.asia.tokyo.service.writebehind.CustomerWriteBehind;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.test.context.SpringBootTest;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Path;
+import javax.validation.Validator;
+import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTest
@@ -30,6 +71,42 @@ class CustomerServiceImplTest {
     @Mock
     public CustomerMapper customerMapper;
 
+    @Spy
+    public CustomerProperties customerProperties = new CustomerProperties();
+
+    @Mock
+    public EntityManager entityManager;
+
+    @Mock
+    public Validator validator;
+
+    @Mock
+    public PlatformTransactionManager transactionManager;
+
+    @Spy
+    public MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    public ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    public CustomerNameIndex customerNameIndex;
+
+    @Mock
+    public TableOccupancy tableOccupancy;
+
+    @Mock
+    public CustomerWriteBehind customerWriteBehind;
+
+    @Mock
+    public CustomerReadModel customerReadModel;
+
+    @Mock
+    public ObjectProvider<CustomerReadModel> customerReadModelProvider;
+
+    @Spy
+    public CustomerCache customerCache = new CustomerCache(new CustomerProperties(), new SimpleMeterRegistry());
+
     @Test
     @DisplayName("Adding a new customer is valid")
     void adding_new_customer_is_valid() {
@@ -47,6 +124,24 @@ class CustomerServiceImplTest {
         assertEquals(customerDto, result);
     }
 
+    @Test
+    @DisplayName("Adding a new customer with write-behind is queuing it for the group commit")
+    void adding_new_customer_with_write_behind_is_queuing_it() throws Exception {
+        // GIVEN
+        CustomerDto customerDto = CustomerDto.builder().customerName("James Bond").tableNumber("10").build();
+        Customer customer = Customer.builder().customerName("James Bond").tableNumber("10").build();
+        when(customerMapper.customerDtoToCustomer(any(CustomerDto.class))).thenReturn(customer);
+        when(customerWriteBehind.submit(customer)).thenReturn(CompletableFuture.completedFuture(customer));
+        when(customerMapper.customerToCustomerDto(customer)).thenReturn(customerDto);
+
+        // WHEN
+        CustomerDto result = customerService.addCustomerAsync(customerDto).get();
+
+        // THEN
+        assertEquals(customerDto, result);
+        verify(customerRepository, never()).save(any(Customer.class));
+    }
+
     @Test
     @DisplayName("Registering a new customer is valid")
     void adding_empty_customer_is_throwing_customer_exception() {
@@ -89,6 +184,46 @@ class CustomerServiceImplTest {
         assertEquals(customerDto, result);
     }
 
+    @Test
+    @DisplayName("Finding the same UUID twice is reading the database once")
+    void finding_same_uuid_twice_is_reading_database_once() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto customerDto = CustomerDto.builder().id(uuid).version(0).customerName("James Bond").tableNumber("10").build();
+        Customer customer = Customer.builder().id(uuid).version(0L).customerName("James Bond").tableNumber("10").build();
+        when(customerRepository.findById(uuid)).thenReturn(Optional.of(customer));
+        when(customerMapper.customerToCustomerDto(customer)).thenReturn(customerDto);
+
+        // WHEN
+        customerService.findCustomerById(uuid);
+        CustomerDto result = customerService.findCustomerById(uuid);
+
+        // THEN
+        assertEquals(customerDto, result);
+        verify(customerRepository, times(1)).findById(uuid);
+    }
+
+    @Test
+    @DisplayName("Finding a customer missing from the cache is reading it from the primary")
+    void finding_uncached_customer_is_reading_primary() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        Customer customer = Customer.builder().id(uuid).version(0L).customerName("James Bond").tableNumber("10").build();
+        List<Boolean> pinned = new ArrayList<>();
+        when(customerRepository.findById(uuid)).thenAnswer(invocation -> {
+            pinned.add(DataSourceRoute.isPinnedToPrimary());
+            return Optional.of(customer);
+        });
+        when(customerMapper.customerToCustomerDto(customer)).thenReturn(CustomerDto.builder().id(uuid).version(0).build());
+
+        // WHEN
+        customerService.findCustomerById(uuid);
+
+        // THEN
+        assertEquals(Collections.singletonList(true), pinned);
+        assertFalse(DataSourceRoute.isPinnedToPrimary());
+    }
+
     @Test
     @DisplayName("Updating empty customer is throwing customer exception")
     void updating_empty_customer_is_throwing_customer_exception() {
@@ -115,6 +250,141 @@ class CustomerServiceImplTest {
         assertEquals(customerDto, result);
     }
 
+    @Test
+    @DisplayName("Updating a customer at the expected version is changing it")
+    void updating_customer_at_expected_version_is_changing_it() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        Customer customer = Customer.builder().id(uuid).version(3L).customerName("James Bond").tableNumber("10").build();
+        CustomerDto changes = CustomerDto.builder().customerName("James Bond").tableNumber("8").build();
+        when(customerRepository.findById(uuid)).thenReturn(Optional.of(customer));
+        when(customerMapper.customerToCustomerDto(customer)).thenReturn(changes);
+
+        // WHEN
+        customerService.updateCustomer(uuid, 3L, changes);
+
+        // THEN
+        assertEquals("8", customer.getTableNumber());
+        verify(entityManager).flush();
+    }
+
+    @Test
+    @DisplayName("Updating a customer at another version is throwing a version conflict")
+    void updating_customer_at_other_version_is_throwing_version_conflict() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        Customer customer = Customer.builder().id(uuid).version(4L).customerName("James Bond").tableNumber("10").build();
+        CustomerDto changes = CustomerDto.builder().customerName("James Bond").tableNumber("8").build();
+        when(customerRepository.findById(uuid)).thenReturn(Optional.of(customer));
+
+        // WHEN THEN
+        assertThrows(CustomerVersionConflictException.class, () -> customerService.updateCustomer(uuid, 3L, changes));
+        assertEquals("10", customer.getTableNumber());
+    }
+
+    @Test
+    @DisplayName("Patching a customer is updating the given fields and answering the whole customer")
+    void patching_customer_is_updating_given_fields_and_answering_whole_customer() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto changes = CustomerDto.builder().tableNumber("8").build();
+        when(validator.validateProperty(changes, "tableNumber")).thenReturn(Collections.emptySet());
+        when(customerRepository.updatePartially(eq(uuid), eq(3L), isNull(), eq("8"), any(Timestamp.class))).thenReturn(1);
+        when(customerRepository.findById(uuid)).thenReturn(Optional.of(Customer.builder()
+                .id(uuid).version(4L).customerName("James Bond").tableNumber("8").build()));
+        when(customerMapper.customerToCustomerDto(any(Customer.class)))
+                .thenAnswer(invocation -> {
+                    Customer customer = invocation.getArgument(0);
+                    return CustomerDto.builder().id(customer.getId()).version(customer.getVersion().intValue())
+                            .customerName(customer.getCustomerName()).tableNumber(customer.getTableNumber()).build();
+                });
+
+        // WHEN
+        CustomerDto patched = customerService.patchCustomer(uuid, 3L, changes);
+
+        // THEN
+        assertEquals(4, patched.getVersion());
+        assertEquals("8", patched.getTableNumber());
+        assertEquals("James Bond", patched.getCustomerName());
+    }
+
+    @Test
+    @DisplayName("Patching a customer at another version is throwing a version conflict")
+    void patching_customer_at_other_version_is_throwing_version_conflict() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        CustomerDto changes = CustomerDto.builder().tableNumber("8").build();
+        when(validator.validateProperty(changes, "tableNumber")).thenReturn(Collections.emptySet());
+        when(customerRepository.updatePartially(eq(uuid), eq(3L), isNull(), eq("8"), any(Timestamp.class))).thenReturn(0);
+        when(customerRepository.existsById(uuid)).thenReturn(true);
+
+        // WHEN THEN
+        assertThrows(CustomerVersionConflictException.class, () -> customerService.patchCustomer(uuid, 3L, changes));
+    }
+
+    @Test
+    @DisplayName("Finding the table occupancy before it is built is throwing unavailable exception")
+    void finding_table_occupancy_before_build_is_throwing_unavailable_exception() {
+        // GIVEN
+        when(tableOccupancy.isReady()).thenReturn(false);
+
+        // WHEN THEN
+        assertThrows(CustomerUnavailableException.class, () -> customerService.findTableOccupancy());
+    }
+
+    @Test
+    @DisplayName("Finding all customers at a version the caller knows is not reading them")
+    void finding_all_customers_at_known_version_is_not_reading_them() {
+        // GIVEN
+        when(customerRepository.findStamp()).thenReturn(stamp(2L, new Timestamp(1000), 3L));
+
+        // WHEN
+        CustomerSnapshot snapshot = customerService.findAllWithVersion("2-1000.0-3"::equals);
+
+        // THEN
+        assertEquals("2-1000.0-3", snapshot.getVersion());
+        assertNull(snapshot.getCustomers());
+        verify(customerRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Finding all customers at a new version is reading them with that version")
+    void finding_all_customers_at_new_version_is_reading_them() {
+        // GIVEN
+        Customer customer = Customer.builder().id(UUID.randomUUID()).customerName("James Bond").tableNumber("10").build();
+        Set<CustomerDto> customerDtos = Collections.singleton(CustomerDto.builder().customerName("James Bond").tableNumber("10").build());
+        when(customerRepository.findStamp()).thenReturn(stamp(1L, new Timestamp(1000), 0L));
+        when(customerRepository.findAll()).thenReturn(Collections.singletonList(customer));
+        when(customerMapper.customersToCustomerDtosSet(Collections.singleton(customer))).thenReturn(customerDtos);
+
+        // WHEN
+        CustomerSnapshot snapshot = customerService.findAllWithVersion("2-1000.0-3"::equals);
+
+        // THEN
+        assertEquals("1-1000.0-0", snapshot.getVersion());
+        assertEquals(customerDtos, snapshot.getCustomers());
+    }
+
+    @Test
+    @DisplayName("Versioning all customers is changing with every write")
+    void versioning_all_customers_is_changing_with_writes() {
+        // GIVEN
+        CustomerRepository.CustomerStamp before = stamp(2L, new Timestamp(1000), 3L);
+        CustomerRepository.CustomerStamp after = stamp(2L, new Timestamp(1000), 4L);
+        when(customerRepository.findStamp()).thenReturn(before, after);
+
+        // WHEN THEN
+        assertNotEquals(customerService.versionOfAll(), customerService.versionOfAll());
+    }
+
+    private static CustomerRepository.CustomerStamp stamp(Long count, Timestamp lastModifiedDate, Long versions) {
+        return new CustomerRepository.CustomerStamp() {
+            public Long getCount() { return count; }
+            public Timestamp getLastModifiedDate() { return lastModifiedDate; }
+            public Long getVersions() { return versions; }
+        };
+    }
+
     @Test
     @DisplayName("Deleting empty UUID customer is throwing customer exception")
     void deleting_empty_uuid_is_throwing_customer_exception() {
@@ -126,7 +396,7 @@ class CustomerServiceImplTest {
     @DisplayName("Deleting unknown UUID customer is throwing customer exception")
     void deleting_unknown_uuid_is_throwing_customer_exception() {
         // GIVEN
-        when(customerRepository.existsById(any(UUID.class))).thenReturn(false);
+        when(customerRepository.deleteByIdReturningCount(any(UUID.class))).thenReturn(0);
 
         // WHEN THEN
         assertThrows(CustomerException.class, () -> customerService.deleteCustomer(UUID.randomUUID()));
@@ -137,11 +407,111 @@ class CustomerServiceImplTest {
     @DisplayName("Deleting existing UUID customer is valid")
     void deleting_existing_uuid_customer_is_valid() {
         // GIVEN
-        when(customerRepository.existsById(any(UUID.class))).thenReturn(true);
-        doNothing().when(customerRepository).deleteById(any(UUID.class));
+        UUID uuid = UUID.randomUUID();
+        when(customerRepository.deleteByIdReturningCount(uuid)).thenReturn(1);
 
         // WHEN
-        customerService.deleteCustomer(UUID.randomUUID());
+        customerService.deleteCustomer(uuid);
+
+        // THEN
+        verify(customerRepository, never()).existsById(any(UUID.class));
+        verify(customerRepository, never()).findById(any(UUID.class));
+    }
+
+    @Test
+    @DisplayName("Deleting a customer at another version is throwing a version conflict")
+    void deleting_customer_at_other_version_is_throwing_version_conflict() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        when(customerRepository.deleteByIdAndVersion(uuid, 3L)).thenReturn(0);
+        when(customerRepository.existsById(uuid)).thenReturn(true);
+
+        // WHEN THEN
+        assertThrows(CustomerVersionConflictException.class, () -> customerService.deleteCustomer(uuid, 3L));
+    }
+
+    @Test
+    @DisplayName("Deleting customers in bulk is deleting them by chunks and counting the missing ones")
+    void deleting_customers_in_bulk_is_deleting_by_chunks() {
+        // GIVEN
+        customerProperties.getBulk().setChunkSize(2);
+        UUID uuid1 = UUID.randomUUID();
+        UUID uuid2 = UUID.randomUUID();
+        UUID uuid3 = UUID.randomUUID();
+        when(customerRepository.lockIdsByIdIn(Arrays.asList(uuid1, uuid2))).thenReturn(Arrays.asList(uuid1, uuid2));
+        when(customerRepository.lockIdsByIdIn(Collections.singletonList(uuid3))).thenReturn(Collections.emptyList());
+        when(customerRepository.deleteByIdIn(anyCollection())).thenReturn(2);
+
+        // WHEN
+        CustomerBulkDeleteResult result = customerService.deleteCustomers(Arrays.asList(uuid1, uuid2, uuid3, uuid1));
+
+        // THEN
+        verify(customerRepository).deleteByIdIn(Arrays.asList(uuid1, uuid2));
+        verify(customerRepository, never()).deleteByIdIn(Collections.singletonList(uuid3));
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertEquals(Arrays.asList(uuid1, uuid2), events.getAllValues().stream()
+                .map(event -> ((CustomerChangedEvent) event).getId()).collect(Collectors.toList()));
+        assertEquals(4, result.getReceived());
+        assertEquals(2, result.getDeleted());
+        assertEquals(1, result.getMissing());
+    }
+
+    @Test
+    @DisplayName("Finding customers by UUIDs is reading the uncached ones by chunks and keeping the request order")
+    void finding_customers_by_uuids_is_reading_by_chunks_in_request_order() {
+        // GIVEN
+        customerProperties.getBulk().setChunkSize(2);
+        UUID cached = UUID.randomUUID();
+        UUID uuid1 = UUID.randomUUID();
+        UUID uuid2 = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        CustomerDto cachedDto = CustomerDto.builder().id(cached).version(0).customerName("James Bond").tableNumber("10").build();
+        customerCache.get(cached, id -> cachedDto);
+        Customer customer1 = Customer.builder().id(uuid1).customerName("Marc Lee").tableNumber("2").build();
+        Customer customer2 = Customer.builder().id(uuid2).customerName("Anna Smith").tableNumber("5").build();
+        CustomerDto customerDto1 = CustomerDto.builder().id(uuid1).customerName("Marc Lee").tableNumber("2").build();
+        CustomerDto customerDto2 = CustomerDto.builder().id(uuid2).customerName("Anna Smith").tableNumber("5").build();
+        when(customerRepository.findAllById(Arrays.asList(uuid2, unknown))).thenReturn(Collections.singletonList(customer2));
+        when(customerRepository.findAllById(Collections.singletonList(uuid1))).thenReturn(Collections.singletonList(customer1));
+        when(customerMapper.customerToCustomerDto(customer1)).thenReturn(customerDto1);
+        when(customerMapper.customerToCustomerDto(customer2)).thenReturn(customerDto2);
+
+        // WHEN
+        CustomerLookupResult result = customerService.findCustomersByIds(Arrays.asList(uuid2, cached, unknown, uuid2, uuid1));
+
+        // THEN
+        assertEquals(Arrays.asList(customerDto2, cachedDto, customerDto1), result.getCustomers());
+        assertEquals(Collections.singletonList(unknown), result.getMissing());
+    }
+
+    @Test
+    @DisplayName("Finding more customers by UUIDs than allowed is not valid")
+    void finding_too_many_customers_by_uuids_is_not_valid() {
+        // GIVEN
+        customerProperties.getBulk().setMaxLookupIds(2);
+
+        // WHEN THEN
+        assertThrows(CustomerException.class,
+                () -> customerService.findCustomersByIds(Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID())));
+        verify(customerRepository, never()).findAllById(any());
+    }
+
+    @Test
+    @DisplayName("Finding customers by 'name like' is served by the read model when asked to")
+    void finding_customers_by_name_like_is_served_by_read_model() {
+        // GIVEN
+        customerProperties.getProjection().setServeReads(true);
+        List<CustomerDto> customerDtos = Collections.singletonList(CustomerDto.builder().customerName("James Bond").tableNumber("10").build());
+        when(customerReadModelProvider.getObject()).thenReturn(customerReadModel);
+        when(customerReadModel.findAllByCustomerNameLike("James%", 10)).thenReturn(customerDtos);
+
+        // WHEN
+        List<CustomerDto> result = customerService.findAllByCustomerNameLike("James%", 10);
+
+        // THEN
+        assertEquals(customerDtos, result);
+        verify(customerRepository, never()).findAllByCustomerNameLike(anyString(), any(Pageable.class));
     }
 
     @Test
@@ -230,4 +600,183 @@ class CustomerServiceImplTest {
         assertEquals(0, result.size());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Finding the first page is giving a next cursor when more customers exist")
+    void finding_first_page_is_giving_a_next_cursor() {
+        // GIVEN
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Customer customer1 = Customer.builder().id(UUID.randomUUID()).createdDate(now).customerName("James Bond").tableNumber("10").build();
+        Customer customer2 = Customer.builder().id(UUID.randomUUID()).createdDate(now).customerName("James-Lee Dog").tableNumber("8").build();
+        Customer customer3 = Customer.builder().id(UUID.randomUUID()).createdDate(now).customerName("Anna Smith").tableNumber("5").build();
+        CustomerDto customerDto1 = CustomerDto.builder().id(customer1.getId()).customerName("James Bond").tableNumber("10").build();
+        CustomerDto customerDto2 = CustomerDto.builder().id(customer2.getId()).customerName("James-Lee Dog").tableNumber("8").build();
+
+        when(customerRepository.findFirstPageAsc(any(Pageable.class))).thenReturn(Arrays.asList(customer1, customer2, customer3));
+        when(customerMapper.customersToCustomerDtosList(any(List.class))).thenReturn(Arrays.asList(customerDto1, customerDto2));
+
+        // WHEN
+        CustomerPagedList result = customerService.findPage(null, 2, null);
+
+        // THEN
+        assertEquals(2, result.getNumberOfElements());
+        assertTrue(result.hasNext());
+        assertNotNull(result.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Finding the next page is seeking after the cursor position")
+    void finding_next_page_is_seeking_after_the_cursor() {
+        // GIVEN
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        now.setNanos(123456789);
+        Customer customer1 = Customer.builder().id(UUID.randomUUID()).createdDate(now).customerName("James Bond").tableNumber("10").build();
+        Customer customer2 = Customer.builder().id(UUID.randomUUID()).createdDate(now).customerName("James-Lee Dog").tableNumber("8").build();
+        when(customerRepository.findFirstPageDesc(any(Pageable.class))).thenReturn(Arrays.asList(customer1, customer2));
+        when(customerRepository.findPageAfterDesc(any(Timestamp.class), any(UUID.class), any(Pageable.class))).thenReturn(Arrays.asList(customer2));
+        when(customerMapper.customersToCustomerDtosList(any(List.class))).thenReturn(Arrays.asList());
+        String cursor = customerService.findPage(null, 1, "desc").getNextCursor();
+
+        // WHEN
+        CustomerPagedList result = customerService.findPage(cursor, 1, null);
+
+        // THEN
+        assertNull(result.getNextCursor());
+        verify(customerRepository).findPageAfterDesc(eq(now), eq(customer1.getId()), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Finding a page with a forged cursor is throwing customer exception")
+    void finding_page_with_invalid_cursor_is_throwing_customer_exception() {
+        // GIVEN WHEN THEN
+        assertThrows(CustomerException.class, () -> customerService.findPage("not-a-cursor", null, null));
+    }
+
+    @Test
+    @DisplayName("Finding a page bigger than the maximum size is throwing customer exception")
+    void finding_page_too_big_is_throwing_customer_exception() {
+        // GIVEN WHEN THEN
+        assertThrows(CustomerException.class, () -> customerService.findPage(null, 100000, null));
+    }
+
+    @Test
+    @DisplayName("Exporting all customers is mapping and releasing them one at a time")
+    void exporting_all_customers_is_mapping_them_one_at_a_time() {
+        // GIVEN
+        Customer customer1 = Customer.builder().id(UUID.randomUUID()).customerName("James Bond").tableNumber("10").build();
+        Customer customer2 = Customer.builder().id(UUID.randomUUID()).customerName("James-Lee Dog").tableNumber("8").build();
+        CustomerDto customerDto1 = CustomerDto.builder().id(customer1.getId()).customerName("James Bond").tableNumber("10").build();
+        CustomerDto customerDto2 = CustomerDto.builder().id(customer2.getId()).customerName("James-Lee Dog").tableNumber("8").build();
+        when(customerRepository.streamAll()).thenReturn(Stream.of(customer1, customer2));
+        when(customerMapper.customerToCustomerDto(customer1)).thenReturn(customerDto1);
+        when(customerMapper.customerToCustomerDto(customer2)).thenReturn(customerDto2);
+        List<CustomerDto> exported = new ArrayList<>();
+
+        // WHEN
+        customerService.exportAll(exported::add);
+
+        // THEN
+        assertEquals(Arrays.asList(customerDto1, customerDto2), exported);
+        verify(entityManager).detach(customer1);
+        verify(entityManager).detach(customer2);
+    }
+
+    @Test
+    @DisplayName("Adding customers in bulk is reporting the invalid ones")
+    void adding_customers_in_bulk_is_reporting_invalid_ones() {
+        // GIVEN
+        customerProperties.getBulk().setChunkSize(2);
+        CustomerDto valid1 = CustomerDto.builder().customerName("James Bond").tableNumber("10").build();
+        CustomerDto invalid = CustomerDto.builder().customerName("Anna").tableNumber("5").build();
+        CustomerDto valid2 = CustomerDto.builder().customerName("James-Lee Dog").tableNumber("8").build();
+        ConstraintViolation<CustomerDto> violation = mock(ConstraintViolation.class);
+        when(violation.getPropertyPath()).thenReturn(mock(Path.class));
+        when(violation.getMessage()).thenReturn("size must be between 10 and 100");
+        when(validator.validate(invalid)).thenReturn(Collections.singleton(violation));
+        when(customerMapper.customerDtoToCustomer(any(CustomerDto.class))).thenReturn(new Customer());
+
+        // WHEN
+        CustomerBulkResult result = customerService.addCustomers(Arrays.asList(valid1, invalid, valid2, null).iterator());
+
+        // THEN
+        assertEquals(4, result.getReceived());
+        assertEquals(2, result.getCreated());
+        assertEquals(2, result.getFailed());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertEquals(3, result.getFailures().get(1).getIndex());
+        verify(customerRepository).saveAll(any(List.class));
+        assertEquals(2, meterRegistry.counter("tokyo.customer.inserted", "mode", "bulk").count());
+    }
+
+    @Test
+    @DisplayName("Adding customers in bulk is isolating the rows refused by the database")
+    void adding_customers_in_bulk_is_isolating_rows_refused_by_the_database() {
+        // GIVEN
+        Customer accepted = new Customer();
+        Customer refused = new Customer();
+        CustomerDto customerDto1 = CustomerDto.builder().customerName("James Bond").tableNumber("10").build();
+        CustomerDto customerDto2 = CustomerDto.builder().customerName("James-Lee Dog").tableNumber("8").build();
+        when(customerMapper.customerDtoToCustomer(customerDto1)).thenReturn(accepted);
+        when(customerMapper.customerDtoToCustomer(customerDto2)).thenReturn(refused);
+        when(customerRepository.saveAll(any(List.class))).thenThrow(new DataIntegrityViolationException("chunk refused"));
+        when(customerRepository.save(refused)).thenThrow(new DataIntegrityViolationException("row refused"));
+
+        // WHEN
+        CustomerBulkResult result = customerService.addCustomers(Arrays.asList(customerDto1, customerDto2).iterator());
+
+        // THEN
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getFailed());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        verify(customerRepository, times(2)).save(any(Customer.class));
+    }
+
+    @Test
+    @DisplayName("Finding customers by 'name like' is checking only the index candidates")
+    void finding_customers_by_name_like_is_checking_only_index_candidates() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        Customer customer = Customer.builder().id(uuid).customerName("Anna Smith").tableNumber("5").build();
+        CustomerDto customerDto = CustomerDto.builder().id(uuid).customerName("Anna Smith").tableNumber("5").build();
+        when(customerNameIndex.candidates(anyString(), anyInt())).thenReturn(Optional.of(Collections.singleton(uuid)));
+        when(customerRepository.findAllByIdInAndCustomerNameLike(any(Collection.class), eq("%Smith%"), any(Pageable.class)))
+                .thenReturn(Collections.singletonList(customer));
+        when(customerMapper.customersToCustomerDtosList(Collections.singletonList(customer))).thenReturn(Collections.singletonList(customerDto));
+
+        // WHEN
+        List<CustomerDto> result = customerService.findAllByCustomerNameLike("%Smith%", 10);
+
+        // THEN
+        assertEquals(Collections.singletonList(customerDto), result);
+        verify(customerRepository, never()).findAllByCustomerNameLike(anyString());
+    }
+
+    @Test
+    @DisplayName("Finding customers by 'name like' with a limit is limiting the database scan")
+    void finding_customers_by_name_like_with_limit_is_limiting_the_scan() {
+        // GIVEN
+        when(customerRepository.findAllByCustomerNameLike(anyString(), any(Pageable.class))).thenReturn(Collections.emptyList());
+
+        // WHEN
+        customerService.findAllByCustomerNameLike("%Jo%", 3);
+
+        // THEN
+        verify(customerRepository).findAllByCustomerNameLike("%Jo%", PageRequest.of(0, 3));
+    }
+
+    @Test
+    @DisplayName("Adding a new customer is publishing a created event")
+    void adding_new_customer_is_publishing_created_event() {
+        // GIVEN
+        CustomerDto customerDto = CustomerDto.builder().customerName("James Bond").tableNumber("10").build();
+        Customer customer = Customer.builder().id(UUID.randomUUID()).customerName("James Bond").tableNumber("10").build();
+        when(customerMapper.customerDtoToCustomer(any(CustomerDto.class))).thenReturn(customer);
+        when(customerRepository.save(any(Customer.class))).thenReturn(customer);
+
+        // WHEN
+        customerService.addCustomer(customerDto);
+
+        // THEN
+        verify(eventPublisher).publishEvent(any(CustomerChangedEvent.class));
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.asia.tokyo.service;
+
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.repository.ReactiveCustomerRepository;
+import com.asia.tokyo.service.search.LikePatterns;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test ReactiveCustomerServiceImpl")
+class ReactiveCustomerServiceImplTest {
+
+    @Mock
+    private ReactiveCustomerRepository reactiveCustomerRepository;
+
+    @InjectMocks
+    private ReactiveCustomerServiceImpl reactiveCustomerService;
+
+    @Test
+    @DisplayName("Adding a customer is giving it an id, a version and dates")
+    void adding_customer_is_stamping_it() {
+        // GIVEN
+        CustomerDto customer = CustomerDto.builder().customerName("James Bond").tableNumber("10").build();
+        given(reactiveCustomerRepository.insert(any(CustomerDto.class))).willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // WHEN THEN
+        StepVerifier.create(reactiveCustomerService.addCustomer(customer))
+                .assertNext(added -> {
+                    assertNotNull(added.getId());
+                    assertEquals(0, added.getVersion());
+                    assertNotNull(added.getCreatedDate());
+                    assertEquals(added.getCreatedDate(), added.getLastModifiedDate());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Updating a customer is keeping its id and creation date and incrementing its version")
+    void updating_customer_is_keeping_its_id() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        OffsetDateTime created = OffsetDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+        given(reactiveCustomerRepository.findById(uuid)).willReturn(Mono.just(CustomerDto.builder()
+                .id(uuid).customerName("James Bond").tableNumber("10").version(3).createdDate(created).build()));
+        given(reactiveCustomerRepository.save(any(CustomerDto.class))).willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        // WHEN THEN
+        StepVerifier.create(reactiveCustomerService.updateCustomer(CustomerDto.builder()
+                        .id(uuid).customerName("James Bond").tableNumber("7").build()))
+                .assertNext(updated -> {
+                    assertEquals(uuid, updated.getId());
+                    assertEquals("7", updated.getTableNumber());
+                    assertEquals(4, updated.getVersion());
+                    assertEquals(created, updated.getCreatedDate());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Updating an unknown customer is signalling a CustomerException without saving")
+    void updating_unknown_customer_is_signalling_exception() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        given(reactiveCustomerRepository.findById(uuid)).willReturn(Mono.empty());
+
+        // WHEN THEN
+        StepVerifier.create(reactiveCustomerService.updateCustomer(CustomerDto.builder().id(uuid).customerName("James Bond").build()))
+                .expectError(CustomerException.class)
+                .verify();
+        verify(reactiveCustomerRepository, never()).save(any(CustomerDto.class));
+    }
+
+    @Test
+    @DisplayName("Finding an unknown customer is signalling a CustomerException")
+    void finding_unknown_customer_is_signalling_exception() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        given(reactiveCustomerRepository.findById(uuid)).willReturn(Mono.empty());
+
+        // WHEN THEN
+        StepVerifier.create(reactiveCustomerService.findCustomerById(uuid))
+                .expectError(CustomerException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Deleting an unknown customer is signalling a CustomerException without deleting")
+    void deleting_unknown_customer_is_signalling_exception() {
+        // GIVEN
+        UUID uuid = UUID.randomUUID();
+        given(reactiveCustomerRepository.existsById(uuid)).willReturn(Mono.just(false));
+
+        // WHEN THEN
+        StepVerifier.create(reactiveCustomerService.deleteCustomer(uuid))
+                .expectError(CustomerException.class)
+                .verify();
+        verify(reactiveCustomerRepository, never()).deleteById(any(UUID.class));
+    }
+
+    @Test
+    @DisplayName("Searching with a limit is taking only that many customers")
+    void searching_with_limit_is_taking_that_many() {
+        // GIVEN
+        given(reactiveCustomerRepository.findAllByCustomerNameRegex(any(String.class))).willReturn(Flux.range(0, 10)
+                .map(i -> CustomerDto.builder().customerName("James Bond " + i).build()));
+
+        // WHEN THEN
+        StepVerifier.create(reactiveCustomerService.findAllByCustomerNameLike("%Bond%", 3))
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Translating a LIKE pattern is giving the same matches as the database")
+    void translating_like_pattern_is_giving_same_matches() {
+        // GIVEN
+        Pattern pattern = Pattern.compile(LikePatterns.toRegex("J_mes%100\\%"));
+
+        // WHEN THEN
+        assertTrue(pattern.matcher("James Bond 100%").matches());
+        assertFalse(pattern.matcher("James Bond 1000").matches());
+        assertFalse(pattern.matcher("Mr James Bond 100%").matches());
+    }
+}
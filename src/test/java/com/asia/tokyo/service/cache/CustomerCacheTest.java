@@ -0,0 +1,96 @@
+package com.asia.tokyo.service.cache;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Test CustomerCache")
+class CustomerCacheTest {
+
+    private MeterRegistry meterRegistry;
+
+    private CustomerCache customerCache;
+
+    private final UUID uuid = UUID.randomUUID();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        customerCache = new CustomerCache(new CustomerProperties(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Reading the same customer twice is loading it once")
+    void reading_twice_is_loading_once() {
+        // GIVEN WHEN
+        customerCache.get(uuid, this::load);
+        CustomerDto result = customerCache.get(uuid, this::load);
+
+        // THEN
+        assertEquals(uuid, result.getId());
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", CustomerCache.NAME).tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Reading an unknown customer is not caching it")
+    void reading_unknown_customer_is_not_caching_it() {
+        // GIVEN WHEN
+        customerCache.get(uuid, id -> null);
+
+        // THEN
+        assertNotNull(customerCache.get(uuid, this::load));
+    }
+
+    @Test
+    @DisplayName("Updating a customer to a newer version is invalidating it")
+    void updating_to_newer_version_is_invalidating() {
+        // GIVEN
+        customerCache.get(uuid, this::load);
+
+        // WHEN
+        customerCache.onCustomerChanged(CustomerChangedEvent.updated(customer(1L)));
+        customerCache.get(uuid, this::load);
+        customerCache.onCustomerChanged(CustomerChangedEvent.updated(customer(2L)));
+        customerCache.get(uuid, this::load);
+
+        // THEN
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Deleting a customer is invalidating it")
+    void deleting_is_invalidating() {
+        // GIVEN
+        customerCache.get(uuid, this::load);
+
+        // WHEN
+        customerCache.onCustomerChanged(CustomerChangedEvent.deleted(uuid));
+        customerCache.get(uuid, this::load);
+
+        // THEN
+        assertEquals(2, loads.get());
+    }
+
+    private CustomerDto load(UUID id) {
+        loads.incrementAndGet();
+        return CustomerDto.builder().id(id).version(1).customerName("James Bond").tableNumber("10").build();
+    }
+
+    private Customer customer(Long version) {
+        return Customer.builder().id(uuid).version(version).customerName("James Bond").tableNumber("10").build();
+    }
+}
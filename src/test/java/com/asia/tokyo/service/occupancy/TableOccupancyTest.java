@@ -0,0 +1,196 @@
+package com.asia.tokyo.service.occupancy;
+
+import com.asia.tokyo.controller.mapper.DateMapper;
+import com.asia.tokyo.controller.model.CustomerTableOccupancy;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Test TableOccupancy")
+class TableOccupancyTest {
+
+    private CustomerRepository customerRepository;
+
+    private TableOccupancy tableOccupancy;
+
+    private final UUID bond = UUID.randomUUID();
+    private final UUID smith = UUID.randomUUID();
+    private final UUID dean = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        customerRepository = mock(CustomerRepository.class);
+        tableOccupancy = new TableOccupancy(customerRepository, mock(PlatformTransactionManager.class),
+                new SyncTaskExecutor(), new DateMapper());
+        when(customerRepository.streamAllCustomerSeats()).thenReturn(Stream.of(
+                customerSeat(bond, "10", 0, 1000),
+                customerSeat(smith, "10", 0, 2000),
+                customerSeat(dean, "2", 0, 3000)));
+    }
+
+    @Test
+    @DisplayName("Building the occupancy is counting the customers per table")
+    void building_is_counting_customers_per_table() {
+        // GIVEN
+        assertFalse(tableOccupancy.isReady());
+
+        // WHEN
+        tableOccupancy.rebuildOnStartup();
+
+        // THEN
+        List<CustomerTableOccupancy> tables = tableOccupancy.snapshot();
+        assertEquals(2, tables.size());
+        assertEquals("10", tables.get(0).getTableNumber());
+        assertEquals(2, tables.get(0).getCustomers());
+        assertEquals(new DateMapper().asOffsetDateTime(new Timestamp(2000)), tables.get(0).getLastModifiedDate());
+        assertEquals("2", tables.get(1).getTableNumber());
+        assertEquals(1, tables.get(1).getCustomers());
+    }
+
+    @Test
+    @DisplayName("Moving, seating and removing customers is following the counts")
+    void writes_are_following_counts() {
+        // GIVEN
+        tableOccupancy.rebuild();
+
+        // WHEN
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.updated(
+                Customer.builder().id(bond).version(1L).tableNumber("2").lastModifiedDate(new Timestamp(4000)).build()));
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.created(
+                Customer.builder().id(UUID.randomUUID()).version(0L).customerName("Anna Jones").tableNumber("7")
+                        .lastModifiedDate(new Timestamp(5000)).build()));
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.deleted(smith));
+
+        // THEN
+        List<CustomerTableOccupancy> tables = tableOccupancy.snapshot();
+        assertEquals(2, tables.size());
+        assertEquals("2", tables.get(0).getTableNumber());
+        assertEquals(2, tables.get(0).getCustomers());
+        assertEquals(new DateMapper().asOffsetDateTime(new Timestamp(4000)), tables.get(0).getLastModifiedDate());
+        assertEquals("7", tables.get(1).getTableNumber());
+        assertEquals(1, tables.get(1).getCustomers());
+    }
+
+    @Test
+    @DisplayName("Changing only the name of a customer is keeping it at its table")
+    void changing_name_only_is_keeping_table() {
+        // GIVEN
+        tableOccupancy.rebuild();
+
+        // WHEN
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.updated(
+                Customer.builder().id(dean).version(1L).customerName("James Dean Jr").lastModifiedDate(new Timestamp(6000)).build()));
+
+        // THEN
+        CustomerTableOccupancy table = tableOccupancy.snapshot().get(1);
+        assertEquals("2", table.getTableNumber());
+        assertEquals(1, table.getCustomers());
+        assertEquals(new DateMapper().asOffsetDateTime(new Timestamp(6000)), table.getLastModifiedDate());
+    }
+
+    @Test
+    @DisplayName("Receiving an older write after a newer one is ignoring it")
+    void receiving_older_write_after_newer_is_ignoring_it() {
+        // GIVEN
+        tableOccupancy.rebuild();
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.updated(
+                Customer.builder().id(bond).version(2L).tableNumber("7").lastModifiedDate(new Timestamp(5000)).build()));
+
+        // WHEN
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.updated(
+                Customer.builder().id(bond).version(1L).tableNumber("2").lastModifiedDate(new Timestamp(4000)).build()));
+
+        // THEN
+        List<CustomerTableOccupancy> tables = tableOccupancy.snapshot();
+        assertEquals(3, tables.size());
+        assertEquals("10", tables.get(0).getTableNumber());
+        assertEquals(1, tables.get(0).getCustomers());
+        assertEquals("2", tables.get(1).getTableNumber());
+        assertEquals(1, tables.get(1).getCustomers());
+        assertEquals("7", tables.get(2).getTableNumber());
+        assertEquals(1, tables.get(2).getCustomers());
+    }
+
+    @Test
+    @DisplayName("Receiving a write after the deletion of its customer is not seating it again")
+    void receiving_write_after_deletion_is_not_seating_again() {
+        // GIVEN
+        tableOccupancy.rebuild();
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.deleted(dean));
+
+        // WHEN
+        tableOccupancy.onCustomerChanged(CustomerChangedEvent.updated(
+                Customer.builder().id(dean).version(1L).tableNumber("2").lastModifiedDate(new Timestamp(4000)).build()));
+
+        // THEN
+        List<CustomerTableOccupancy> tables = tableOccupancy.snapshot();
+        assertEquals(1, tables.size());
+        assertEquals("10", tables.get(0).getTableNumber());
+    }
+
+    @Test
+    @DisplayName("Loading a row older than a write followed during the build is keeping the write")
+    void loading_row_older_than_write_followed_during_build_is_keeping_write() {
+        // GIVEN
+        boolean[] written = {false};
+        when(customerRepository.streamAllCustomerSeats()).thenReturn(Stream.of(
+                customerSeat(smith, "10", 0, 2000),
+                customerSeat(bond, "10", 0, 1000))
+                .peek(seat -> {
+                    if (!written[0]) {
+                        written[0] = true;
+                        tableOccupancy.onCustomerChanged(CustomerChangedEvent.updated(
+                                Customer.builder().id(bond).version(1L).tableNumber("2").lastModifiedDate(new Timestamp(4000)).build()));
+                    }
+                }));
+
+        // WHEN
+        tableOccupancy.rebuild();
+
+        // THEN
+        List<CustomerTableOccupancy> tables = tableOccupancy.snapshot();
+        assertEquals(2, tables.size());
+        assertEquals("10", tables.get(0).getTableNumber());
+        assertEquals(1, tables.get(0).getCustomers());
+        assertEquals("2", tables.get(1).getTableNumber());
+        assertEquals(1, tables.get(1).getCustomers());
+    }
+
+    private static CustomerRepository.CustomerSeat customerSeat(UUID id, String tableNumber, long version, long lastModifiedMillis) {
+        return new CustomerRepository.CustomerSeat() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getTableNumber() {
+                return tableNumber;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+
+            @Override
+            public Timestamp getLastModifiedDate() {
+                return new Timestamp(lastModifiedMillis);
+            }
+        };
+    }
+}
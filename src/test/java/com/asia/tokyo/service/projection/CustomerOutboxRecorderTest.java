@@ -0,0 +1,75 @@
+package com.asia.tokyo.service.projection;
+
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.repository.CustomerOutboxRepository;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = "tokyo.customer.projection.enabled=true")
+@Import(CustomerOutboxRecorder.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Test CustomerOutboxRecorder")
+class CustomerOutboxRecorderTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerOutboxRepository customerOutboxRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        customerOutboxRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("A committed write is recorded in the outbox")
+    void committed_write_is_recorded() {
+        // GIVEN WHEN
+        Customer customer = new TransactionTemplate(transactionManager).execute(status -> {
+            Customer saved = customerRepository.save(Customer.builder().customerName("James Bond").tableNumber("10").build());
+            eventPublisher.publishEvent(CustomerChangedEvent.created(saved));
+            return saved;
+        });
+
+        // THEN
+        assertEquals(1, customerOutboxRepository.count());
+        assertEquals(customer.getId(), customerOutboxRepository.findAll().get(0).getCustomerId());
+        assertEquals("CREATED", customerOutboxRepository.findAll().get(0).getType());
+    }
+
+    @Test
+    @DisplayName("A rolled back write leaves nothing in the outbox")
+    void rolled_back_write_is_not_recorded() {
+        // GIVEN WHEN
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Customer saved = customerRepository.save(Customer.builder().customerName("James Bond").tableNumber("10").build());
+            eventPublisher.publishEvent(CustomerChangedEvent.created(saved));
+            status.setRollbackOnly();
+        });
+
+        // THEN
+        assertEquals(0, customerOutboxRepository.count());
+        assertEquals(0, customerRepository.count());
+    }
+}
@@ -0,0 +1,161 @@
+package com.asia.tokyo.service.projection;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.config.datasource.DataSourceShard;
+import com.asia.tokyo.config.datasource.ShardRoutingDataSource;
+import com.asia.tokyo.controller.mapper.CustomerMapper;
+import com.asia.tokyo.controller.model.CustomerDto;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.domain.CustomerOutbox;
+import com.asia.tokyo.repository.CustomerOutboxRepository;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test CustomerProjector")
+class CustomerProjectorTest {
+
+    @Mock
+    private CustomerOutboxRepository customerOutboxRepository;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private CustomerMapper customerMapper;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulk;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<ShardRoutingDataSource> shards;
+
+    private CustomerProjector customerProjector;
+
+    private final UUID id = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        customerProjector = new CustomerProjector(customerOutboxRepository, customerRepository, customerMapper,
+                mongoTemplate, transactionManager, shards, new CustomerProperties(), new SimpleMeterRegistry());
+        CustomerOutbox entry = CustomerOutbox.builder().customerId(id).type("UPDATED").build();
+        entry.setCreatedDate(new Timestamp(System.currentTimeMillis()));
+        List<CustomerOutbox> batch = Collections.singletonList(entry);
+        Customer customer = Customer.builder().id(id).version(3L).customerName("James Bond").tableNumber("10").build();
+        when(customerOutboxRepository.findOldest(any())).thenReturn(batch);
+        when(customerRepository.findAllById(any())).thenReturn(Collections.singletonList(customer));
+        when(customerMapper.customerToCustomerDto(customer))
+                .thenReturn(CustomerDto.builder().id(id).version(3).customerName("James Bond").tableNumber("10").build());
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CustomerDto.class)).thenReturn(bulk);
+    }
+
+    @Test
+    @DisplayName("Projecting a customer is only replacing an older version of its document")
+    void projecting_is_only_replacing_older_version() {
+        // WHEN
+        customerProjector.project();
+
+        // THEN
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(bulk).replaceOne(query.capture(), any(CustomerDto.class), any(FindAndReplaceOptions.class));
+        assertEquals(id, query.getValue().getQueryObject().get("id"));
+        assertEquals(new Document("$lt", 3), query.getValue().getQueryObject().get("version"));
+    }
+
+    @Test
+    @DisplayName("Projecting a customer whose document is already newer is consuming its outbox entry")
+    void projecting_behind_newer_document_is_consuming_entry() {
+        // GIVEN
+        when(bulk.execute()).thenThrow(bulkFailure(11000));
+
+        // WHEN
+        int applied = customerProjector.project();
+
+        // THEN
+        assertEquals(1, applied);
+        verify(customerOutboxRepository).deleteInBatch(any());
+    }
+
+    @Test
+    @DisplayName("Projecting is failing on any other write error")
+    void projecting_is_failing_on_other_write_error() {
+        // GIVEN
+        when(bulk.execute()).thenThrow(bulkFailure(121));
+
+        // WHEN THEN
+        assertThrows(BulkOperationException.class, () -> customerProjector.project());
+        verify(customerOutboxRepository, never()).deleteInBatch(any());
+    }
+
+    @Test
+    @DisplayName("Projecting with sharding is draining the outbox of every shard")
+    void projecting_with_sharding_is_draining_every_shard() {
+        // GIVEN
+        ShardRoutingDataSource dataSource = mock(ShardRoutingDataSource.class);
+        when(dataSource.size()).thenReturn(3);
+        when(shards.getIfAvailable()).thenReturn(dataSource);
+        customerProjector = new CustomerProjector(customerOutboxRepository, customerRepository, customerMapper,
+                mongoTemplate, transactionManager, shards, new CustomerProperties(), new SimpleMeterRegistry());
+        List<Integer> drained = new ArrayList<>();
+        doAnswer(invocation -> drained.add(DataSourceShard.current())).when(customerOutboxRepository).deleteInBatch(any());
+
+        // WHEN
+        int applied = customerProjector.project();
+
+        // THEN
+        assertEquals(3, applied);
+        assertEquals(Arrays.asList(0, 1, 2), drained);
+        verify(customerOutboxRepository, times(3)).findOldest(any());
+        assertFalse(DataSourceShard.isEntered());
+    }
+
+    private static BulkOperationException bulkFailure(int code) {
+        BulkWriteError error = new BulkWriteError(code, "write error", new BsonDocument(), 0);
+        return new BulkOperationException("write error", new MongoBulkWriteException(BulkWriteResult.unacknowledged(),
+                Collections.singletonList(error), null, new ServerAddress()));
+    }
+}
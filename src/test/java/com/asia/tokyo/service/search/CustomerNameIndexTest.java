@@ -0,0 +1,137 @@
+package com.asia.tokyo.service.search;
+
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Test CustomerNameIndex")
+class CustomerNameIndexTest {
+
+    private CustomerRepository customerRepository;
+
+    private CustomerNameIndex customerNameIndex;
+
+    private final UUID bond = UUID.randomUUID();
+    private final UUID smith = UUID.randomUUID();
+    private final UUID blacksmith = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        customerRepository = mock(CustomerRepository.class);
+        customerNameIndex = new CustomerNameIndex(customerRepository, mock(PlatformTransactionManager.class), new SyncTaskExecutor());
+        when(customerRepository.streamAllCustomerNames()).thenReturn(Stream.of(
+                customerName(bond, "James Bond"),
+                customerName(smith, "Anna Smith"),
+                customerName(blacksmith, "John Blacksmith")));
+    }
+
+    @Test
+    @DisplayName("Searching before the index is built is giving no candidates")
+    void searching_before_build_is_giving_no_candidates() {
+        // GIVEN WHEN THEN
+        assertFalse(customerNameIndex.isReady());
+        assertFalse(customerNameIndex.candidates("%smith%", 100).isPresent());
+    }
+
+    @Test
+    @DisplayName("Searching a substring is giving every name holding it, whatever the case")
+    void searching_substring_is_giving_names_holding_it() {
+        // GIVEN
+        customerNameIndex.rebuildOnStartup();
+
+        // WHEN
+        Optional<Set<UUID>> result = customerNameIndex.candidates("%SMITH%", 100);
+
+        // THEN
+        assertEquals(3, customerNameIndex.size());
+        assertEquals(new HashSet<>(Arrays.asList(smith, blacksmith)), result.get());
+    }
+
+    @Test
+    @DisplayName("Searching without the accents of a name is giving it, as an accent insensitive collation does")
+    void searching_without_accents_is_giving_accented_names() {
+        // GIVEN
+        UUID emile = UUID.randomUUID();
+        customerNameIndex.rebuild();
+        customerNameIndex.onCustomerChanged(CustomerChangedEvent.created(customer(emile, "Émile Zoé")));
+
+        // WHEN THEN
+        assertEquals(Collections.singleton(emile), customerNameIndex.candidates("%emile zoe%", 100).get());
+        assertEquals(Collections.singleton(emile), customerNameIndex.candidates("%ÉMILE%", 100).get());
+    }
+
+    @Test
+    @DisplayName("Searching an unknown trigram is giving an empty result")
+    void searching_unknown_trigram_is_giving_empty_result() {
+        // GIVEN
+        customerNameIndex.rebuild();
+
+        // WHEN THEN
+        assertTrue(customerNameIndex.candidates("%Lucy%", 100).get().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Searching too short or too common a pattern is leaving it to the database")
+    void searching_short_or_common_pattern_is_giving_no_candidates() {
+        // GIVEN
+        customerNameIndex.rebuild();
+
+        // WHEN THEN
+        assertFalse(customerNameIndex.candidates("%Jo%", 100).isPresent());
+        assertFalse(customerNameIndex.candidates("%smith%", 1).isPresent());
+    }
+
+    @Test
+    @DisplayName("Writing customers is keeping the index up to date")
+    void writing_customers_is_updating_the_index() {
+        // GIVEN
+        customerNameIndex.rebuild();
+        UUID lucy = UUID.randomUUID();
+
+        // WHEN
+        customerNameIndex.onCustomerChanged(CustomerChangedEvent.created(customer(lucy, "Lucy Smithson")));
+        customerNameIndex.onCustomerChanged(CustomerChangedEvent.updated(customer(smith, "Anna Jones")));
+        customerNameIndex.onCustomerChanged(CustomerChangedEvent.deleted(blacksmith));
+
+        // THEN
+        assertEquals(Collections.singleton(lucy), customerNameIndex.candidates("%smith%", 100).get());
+        assertEquals(Collections.singleton(smith), customerNameIndex.candidates("%jones%", 100).get());
+    }
+
+    @Test
+    @DisplayName("Splitting a LIKE pattern is keeping escaped wildcards as literals")
+    void splitting_like_pattern_is_keeping_escaped_wildcards() {
+        // GIVEN WHEN THEN
+        assertEquals(Arrays.asList("Ja", "es B", "100%"), CustomerNameIndex.literals("%Ja_es B%100\\%"));
+    }
+
+    private static Customer customer(UUID id, String customerName) {
+        return Customer.builder().id(id).version(1L).customerName(customerName).tableNumber("1").build();
+    }
+
+    private static CustomerRepository.CustomerName customerName(UUID id, String customerName) {
+        return new CustomerRepository.CustomerName() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getCustomerName() {
+                return customerName;
+            }
+        };
+    }
+}
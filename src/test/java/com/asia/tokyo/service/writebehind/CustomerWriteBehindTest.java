@@ -0,0 +1,174 @@
+package com.asia.tokyo.service.writebehind;
+
+import com.asia.tokyo.config.CustomerProperties;
+import com.asia.tokyo.domain.Customer;
+import com.asia.tokyo.exception.CustomerException;
+import com.asia.tokyo.exception.CustomerUnavailableException;
+import com.asia.tokyo.repository.CustomerRepository;
+import com.asia.tokyo.service.event.CustomerChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Test CustomerWriteBehind")
+class CustomerWriteBehindTest {
+
+    private final CustomerRepository customerRepository = mock(CustomerRepository.class);
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CountDownLatch committing = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private CustomerWriteBehind customerWriteBehind;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        customerWriteBehind.shutdown();
+    }
+
+    @Test
+    @DisplayName("Creations queued together are committed in one group")
+    void creations_queued_together_are_committed_in_one_group() throws Exception {
+        // GIVEN
+        customerWriteBehind = writeBehind(true, 10, 3, Duration.ofSeconds(5));
+
+        // WHEN
+        List<CompletableFuture<Customer>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            futures.add(customerWriteBehind.submit(Customer.builder().customerName("James Bond " + i).tableNumber("1").build()));
+
+        // THEN
+        for (CompletableFuture<Customer> future : futures)
+            assertNotNull(future.get(2, TimeUnit.SECONDS));
+        verify(customerRepository).saveAll(anyList());
+        verify(eventPublisher, times(3)).publishEvent(any(CustomerChangedEvent.class));
+        assertEquals(3, meterRegistry.get("tokyo.customer.write-behind.batch").summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("A refused group is retried one by one so only the faulty creation fails")
+    void refused_group_is_retried_one_by_one() throws Exception {
+        // GIVEN
+        customerWriteBehind = writeBehind(true, 10, 2, Duration.ofSeconds(5));
+        Customer good = Customer.builder().customerName("James Bond").tableNumber("1").build();
+        Customer bad = Customer.builder().customerName("Anna Smith").tableNumber("2").build();
+        when(customerRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(customerRepository.save(bad)).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // WHEN
+        CompletableFuture<Customer> goodFuture = customerWriteBehind.submit(good);
+        CompletableFuture<Customer> badFuture = customerWriteBehind.submit(bad);
+
+        // THEN
+        assertSame(good, goodFuture.get(2, TimeUnit.SECONDS));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> badFuture.get(2, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof CustomerException);
+    }
+
+    @Test
+    @DisplayName("Creations above the queue capacity are refused as unavailable")
+    void creations_above_queue_capacity_are_refused() {
+        // GIVEN
+        customerWriteBehind = writeBehind(false, 1, 1, Duration.ZERO);
+
+        // WHEN
+        CompletableFuture<Customer> future = customerWriteBehind.submit(Customer.builder().customerName("James Bond").tableNumber("1").build());
+
+        // THEN
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertTrue(exception.getCause() instanceof CustomerUnavailableException);
+        assertEquals(1, meterRegistry.get("tokyo.customer.write-behind.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("A creation queued past the timeout is withdrawn without being written")
+    void creation_queued_past_timeout_is_withdrawn() throws Exception {
+        // GIVEN
+        blockCommits();
+        customerWriteBehind = writeBehind(true, 10, 1, Duration.ZERO);
+        CompletableFuture<Customer> first = customerWriteBehind.submit(Customer.builder().customerName("James Bond").tableNumber("1").build());
+        assertTrue(committing.await(2, TimeUnit.SECONDS));
+
+        // WHEN
+        CompletableFuture<Customer> queued = customerWriteBehind.submit(Customer.builder().customerName("Anna Smith").tableNumber("2").build());
+
+        // THEN
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> queued.get(2, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof CustomerUnavailableException);
+        assertEquals(1, meterRegistry.get("tokyo.customer.write-behind.timeout").counter().count());
+        release.countDown();
+        assertNotNull(first.get(2, TimeUnit.SECONDS));
+        verify(customerRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Shutting down is failing the queued creations and finishing the group being committed")
+    void shutting_down_is_failing_queued_creations() throws Exception {
+        // GIVEN
+        blockCommits();
+        customerWriteBehind = writeBehind(true, 10, 1, Duration.ZERO);
+        CompletableFuture<Customer> first = customerWriteBehind.submit(Customer.builder().customerName("James Bond").tableNumber("1").build());
+        assertTrue(committing.await(2, TimeUnit.SECONDS));
+        CompletableFuture<Customer> queued = customerWriteBehind.submit(Customer.builder().customerName("Anna Smith").tableNumber("2").build());
+
+        // WHEN
+        customerWriteBehind.shutdown();
+
+        // THEN
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> queued.get(2, TimeUnit.SECONDS));
+        assertTrue(exception.getCause() instanceof CustomerUnavailableException);
+        release.countDown();
+        assertNotNull(first.get(2, TimeUnit.SECONDS));
+        verify(customerRepository, times(1)).saveAll(anyList());
+    }
+
+    /**
+     * The commits wait for {@link #release}, after counting down {@link #committing}.
+     */
+    private void blockCommits() {
+        when(customerRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            committing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+    }
+
+    private CustomerWriteBehind writeBehind(boolean enabled, int queueCapacity, int maxBatchSize, Duration linger) {
+        CustomerProperties customerProperties = new CustomerProperties();
+        customerProperties.getWriteBehind().setEnabled(enabled);
+        customerProperties.getWriteBehind().setQueueCapacity(queueCapacity);
+        customerProperties.getWriteBehind().setMaxBatchSize(maxBatchSize);
+        customerProperties.getWriteBehind().setLinger(linger);
+        customerProperties.getWriteBehind().setTimeout(Duration.ofMillis(300));
+        return new CustomerWriteBehind(customerRepository, mock(EntityManager.class), mock(PlatformTransactionManager.class),
+                eventPublisher, mock(ObjectProvider.class), customerProperties, meterRegistry);
+    }
+}